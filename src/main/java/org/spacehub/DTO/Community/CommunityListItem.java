@@ -0,0 +1,17 @@
+package org.spacehub.DTO.Community;
+
+import org.spacehub.entities.Community.Role;
+
+import java.util.UUID;
+
+public record CommunityListItem(
+  UUID communityId,
+  String name,
+  String description,
+  String imageUrl,
+  String bannerUrl,
+  UUID createdById,
+  Role role,
+  long memberCount
+) {
+}
@@ -0,0 +1,15 @@
+package org.spacehub.DTO.DirectMessaging;
+
+public record ConfirmFrame(
+  String type,
+  String messageUuid,
+  Long messageId,
+  Long timestamp,
+  DirectMessageFrame message
+) {
+
+  public ConfirmFrame(DirectMessageFrame message) {
+    this("CONFIRM", message.messageUuid(), message.messageId(), message.timestamp(), message);
+  }
+
+}
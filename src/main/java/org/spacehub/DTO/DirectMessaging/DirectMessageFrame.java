@@ -0,0 +1,32 @@
+package org.spacehub.DTO.DirectMessaging;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public record DirectMessageFrame(
+  Long messageId,
+  String messageUuid,
+  String type,
+  String senderEmail,
+  String receiverEmail,
+  String content,
+  String message,
+  long timestamp,
+  Boolean readStatus,
+  Boolean senderDeleted,
+  Boolean receiverDeleted,
+  String senderUsername,
+  String receiverUsername,
+  @JsonInclude(JsonInclude.Include.NON_NULL) String fileName,
+  @JsonInclude(JsonInclude.Include.NON_NULL) String fileKey,
+  @JsonInclude(JsonInclude.Include.NON_NULL) String contentType,
+  @JsonInclude(JsonInclude.Include.NON_NULL) String previewUrl,
+  boolean optimistic
+) {
+
+  public DirectMessageFrame withPreviewUrl(String url) {
+    return new DirectMessageFrame(messageId, messageUuid, type, senderEmail, receiverEmail, content, message,
+      timestamp, readStatus, senderDeleted, receiverDeleted, senderUsername, receiverUsername, fileName, fileKey,
+      contentType, url, optimistic);
+  }
+
+}
@@ -0,0 +1,15 @@
+package org.spacehub.DTO.Notification;
+
+import java.util.List;
+
+public record NotificationBatchFrame(
+  String type,
+  int count,
+  List<Object> notifications
+) {
+
+  public NotificationBatchFrame(List<Object> notifications) {
+    this("BATCH", notifications.size(), notifications);
+  }
+
+}
@@ -0,0 +1,14 @@
+package org.spacehub.DTO.Notification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record NotificationPageFrame(
+  String type,
+  List<NotificationResponseDTO> notifications,
+  boolean hasMore,
+  LocalDateTime nextBeforeCreatedAt,
+  UUID nextBeforeId
+) {
+}
@@ -3,10 +3,15 @@ package org.spacehub.DTO.Notification;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
+import java.util.UUID;
+
 @Getter
 @Setter
 public class NotificationUserRequest {
   private String scope = "global";
   private int page = 0;
   private int size = 20;
+  private LocalDateTime beforeCreatedAt;
+  private UUID beforeId;
 }
@@ -0,0 +1,15 @@
+package org.spacehub.DTO.chatroom;
+
+import java.util.List;
+import java.util.UUID;
+
+public record ChatHistoryFrame(
+  String type,
+  UUID roomCode,
+  List<ChatMessageFrame> messages,
+  boolean hasMore,
+  Long nextBeforeTimestamp,
+  Long nextBeforeId,
+  String nextBeforeUuid
+) {
+}
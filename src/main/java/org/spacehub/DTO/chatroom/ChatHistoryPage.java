@@ -0,0 +1,19 @@
+package org.spacehub.DTO.chatroom;
+
+import lombok.Builder;
+import lombok.Data;
+import org.spacehub.entities.ChatRoom.ChatMessage;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ChatHistoryPage {
+
+  private List<ChatMessage> messages;
+  private boolean hasMore;
+  private Long nextBeforeTimestamp;
+  private Long nextBeforeId;
+  private String nextBeforeUuid;
+
+}
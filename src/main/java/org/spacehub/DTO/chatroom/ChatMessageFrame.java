@@ -0,0 +1,15 @@
+package org.spacehub.DTO.chatroom;
+
+public record ChatMessageFrame(
+  String messageUuid,
+  String type,
+  String senderEmail,
+  String message,
+  Long timestamp,
+  String fileName,
+  String fileUrl,
+  String contentType,
+  String senderUsername,
+  boolean optimistic
+) {
+}
@@ -0,0 +1,14 @@
+package org.spacehub.DTO.chatroom;
+
+public record DeleteFrame(
+  String type,
+  String messageUuid,
+  String deletedBy,
+  long timestamp
+) {
+
+  public DeleteFrame(String messageUuid, String deletedBy, long timestamp) {
+    this("DELETE", messageUuid, deletedBy, timestamp);
+  }
+
+}
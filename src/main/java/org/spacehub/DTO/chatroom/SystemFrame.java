@@ -0,0 +1,8 @@
+package org.spacehub.DTO.chatroom;
+
+public record SystemFrame(
+  String type,
+  String message,
+  long timestamp
+) {
+}
@@ -9,4 +9,6 @@ import java.util.List;
 public class OnlineUsersDTO {
   private Long communityId;
   private List<String> onlineEmails;
+  private String nextCursor;
+  private Long total;
 }
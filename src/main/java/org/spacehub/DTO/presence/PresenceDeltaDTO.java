@@ -0,0 +1,20 @@
+package org.spacehub.DTO.presence;
+
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceDeltaDTO {
+  private String type = "delta";
+  private Long communityId;
+  private List<String> joined;
+  private List<String> left;
+
+  public PresenceDeltaDTO(Long communityId, List<String> joined, List<String> left) {
+    this.communityId = communityId;
+    this.joined = joined;
+    this.left = left;
+  }
+}
@@ -8,27 +8,28 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.spacehub.entities.User.User;
 import org.spacehub.service.serviceAuth.UserNameService;
-import org.spacehub.service.serviceAuth.UserService;
+import org.spacehub.service.serviceAuth.UserSnapshotCache;
+import org.spacehub.service.serviceAuth.VerifiedTokenCache;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
-import java.util.function.Function;
 
 @Component
 public class Filters extends OncePerRequestFilter {
 
   private final UserNameService usernameService;
-  private final UserService userService;
+  private final UserSnapshotCache userSnapshotCache;
+  private final VerifiedTokenCache verifiedTokenCache;
 
-  public Filters(UserNameService usernameService, UserService userService) {
+  public Filters(UserNameService usernameService, UserSnapshotCache userSnapshotCache,
+                 VerifiedTokenCache verifiedTokenCache) {
     this.usernameService = usernameService;
-    this.userService = userService;
+    this.userSnapshotCache = userSnapshotCache;
+    this.verifiedTokenCache = verifiedTokenCache;
   }
 
   @Override
@@ -46,7 +47,6 @@ public class Filters extends OncePerRequestFilter {
 
     final String header = request.getHeader("Authorization");
     String token = null;
-    String userEmail = null;
 
     if (header != null && header.startsWith("Bearer ")) {
       token = header.substring(7);
@@ -60,37 +60,59 @@ public class Filters extends OncePerRequestFilter {
       }
     }
 
-    try {
-      if (token != null) {
-        userEmail = usernameService.extractUsername(token);
+    if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+      User user = fromCache(token);
+      if (user == null) {
+        user = authenticate(token);
       }
-    } catch (Exception ignored) {
-      SecurityContextHolder.clearContext();
-    }
 
-    if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-      try {
-        UserDetails userDetails = userService.loadUserByUsername(userEmail);
-        User user = (User) userDetails;
-
-        Claims claims = usernameService.extractClaim(token, Function.identity());
-        Integer tokenVersionObj = (Integer) claims.get("passwordVersion");
-        int tokenVersion = tokenVersionObj != null ? tokenVersionObj : 0;
-        int userVersion = user.getPasswordVersion() != null ? user.getPasswordVersion() : 0;
-
-        if (usernameService.validToken(token, user) && tokenVersion == userVersion) {
-          UsernamePasswordAuthenticationToken authToken =
-            new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-          authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-          SecurityContextHolder.getContext().setAuthentication(authToken);
-        }
-      } catch (UsernameNotFoundException ignored) {
-        SecurityContextHolder.clearContext();
-      } catch (Exception ignored) {
-        SecurityContextHolder.clearContext();
+      if (user != null) {
+        UsernamePasswordAuthenticationToken authToken =
+          new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
       }
     }
 
     filterChain.doFilter(request, response);
   }
+
+  private User fromCache(String token) {
+    VerifiedTokenCache.VerifiedToken verified = verifiedTokenCache.get(token);
+    if (verified == null) return null;
+
+    User user = userSnapshotCache.get(verified.email());
+    if (user == null || passwordVersion(user) != verified.passwordVersion()) {
+      verifiedTokenCache.evict(token);
+      return null;
+    }
+    return user;
+  }
+
+  // The token is parsed and its signature checked once; a verified token is then served from the cache
+  // until it expires or the user's password version changes.
+  private User authenticate(String token) {
+    try {
+      Claims claims = usernameService.parseClaims(token);
+      String userEmail = claims.getSubject();
+      if (userEmail == null) return null;
+
+      User user = userSnapshotCache.get(userEmail);
+      if (user == null) return null;
+
+      Object tokenVersionObj = claims.get("passwordVersion");
+      int tokenVersion = tokenVersionObj instanceof Number n ? n.intValue() : 0;
+      if (tokenVersion != passwordVersion(user) || !usernameService.validClaims(claims, user)) return null;
+
+      verifiedTokenCache.put(token, user.getEmail(), tokenVersion, claims.getExpiration());
+      return user;
+    } catch (Exception ignored) {
+      SecurityContextHolder.clearContext();
+      return null;
+    }
+  }
+
+  private int passwordVersion(User user) {
+    return user.getPasswordVersion() != null ? user.getPasswordVersion() : 0;
+  }
 }
@@ -0,0 +1,42 @@
+package org.spacehub.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.spacehub.service.queue.AdaptiveFlushPolicy;
+import org.spacehub.service.queue.FlushPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Both policies are injected by qualifier, so they are tuned through the chat.queue.flush.* and
+// dm.queue.flush.* properties rather than replaced; a test that needs a different policy can register its
+// own bean under the same name with spring.main.allow-bean-definition-overriding.
+@Configuration
+public class MessageFlushConfig {
+
+  @Bean
+  public FlushPolicy chatFlushPolicy(@Value("${chat.queue.flush.count:100}") int count,
+                                     @Value("${chat.queue.flush.bytes:262144}") long bytes,
+                                     @Value("${chat.queue.flush.max-latency:1s}") Duration maxLatency,
+                                     @Value("${chat.queue.flush.max-batch:500}") int maxBatch,
+                                     @Value("${chat.queue.flush.latency-target:200ms}") Duration latencyTarget,
+                                     @Value("${chat.queue.flush.max-backoff:8}") double maxBackoff,
+                                     MeterRegistry meterRegistry) {
+    return new AdaptiveFlushPolicy("chat.queue", count, bytes, maxLatency, maxBatch, latencyTarget, maxBackoff,
+      meterRegistry);
+  }
+
+  @Bean
+  public FlushPolicy directMessageFlushPolicy(@Value("${dm.queue.flush.count:50}") int count,
+                                              @Value("${dm.queue.flush.bytes:131072}") long bytes,
+                                              @Value("${dm.queue.flush.max-latency:1s}") Duration maxLatency,
+                                              @Value("${dm.queue.flush.max-batch:500}") int maxBatch,
+                                              @Value("${dm.queue.flush.latency-target:200ms}") Duration latencyTarget,
+                                              @Value("${dm.queue.flush.max-backoff:8}") double maxBackoff,
+                                              MeterRegistry meterRegistry) {
+    return new AdaptiveFlushPolicy("dm.queue", count, bytes, maxLatency, maxBatch, latencyTarget, maxBackoff,
+      meterRegistry);
+  }
+
+}
@@ -0,0 +1,48 @@
+package org.spacehub.configuration;
+
+import org.spacehub.service.journal.WriteAheadJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class MessageJournalConfig {
+
+  @Value("${message.journal.enabled:true}")
+  private boolean enabled;
+
+  @Value("${message.journal.dir:data/journal}")
+  private String directory;
+
+  @Value("${message.journal.segment-bytes:16777216}")
+  private int segmentBytes;
+
+  @Value("${message.journal.fsync:false}")
+  private boolean fsync;
+
+  @Value("${message.journal.stripes:8}")
+  private int stripes;
+
+  @Bean(destroyMethod = "close")
+  public WriteAheadJournal chatMessageJournal() {
+    return new WriteAheadJournal(Path.of(directory, "chat"), segmentBytes, fsync, enabled, stripes);
+  }
+
+  @Bean(destroyMethod = "close")
+  public WriteAheadJournal directMessageJournal() {
+    return new WriteAheadJournal(Path.of(directory, "direct"), segmentBytes, fsync, enabled, stripes);
+  }
+
+  @Bean(destroyMethod = "close")
+  public WriteAheadJournal chatDeadLetterJournal() {
+    return new WriteAheadJournal(Path.of(directory, "chat-dead-letter"), segmentBytes, true, enabled);
+  }
+
+  @Bean(destroyMethod = "close")
+  public WriteAheadJournal directMessageDeadLetterJournal() {
+    return new WriteAheadJournal(Path.of(directory, "direct-dead-letter"), segmentBytes, true, enabled);
+  }
+
+}
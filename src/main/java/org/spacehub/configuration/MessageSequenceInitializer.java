@@ -0,0 +1,55 @@
+package org.spacehub.configuration;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.Map;
+
+@Component
+public class MessageSequenceInitializer {
+
+  private static final Logger logger = LoggerFactory.getLogger(MessageSequenceInitializer.class);
+
+  private static final Map<String, String> SEQUENCES = Map.of(
+    "chat_messages", "chat_messages_seq",
+    "direct_messages", "direct_messages_seq"
+  );
+
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+
+  // Depends on the EntityManagerFactory so the schema update has created the sequences first.
+  public MessageSequenceInitializer(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                    EntityManagerFactory entityManagerFactory) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.dataSource = dataSource;
+  }
+
+  @PostConstruct
+  public void alignSequences() {
+    try {
+      String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+      if (!"PostgreSQL".equals(product)) return;
+
+      SEQUENCES.forEach((table, sequence) -> {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+        if (maxId != null && lastValue != null && maxId > lastValue) {
+          jdbcTemplate.queryForObject("SELECT setval(CAST(? AS regclass), ?)", Long.class, sequence, maxId);
+          logger.info("Moved {} past existing ids of {} (max id {})", sequence, table, maxId);
+        }
+      });
+    }
+    catch (Exception e) {
+      logger.warn("Unable to align message id sequences", e);
+    }
+  }
+
+}
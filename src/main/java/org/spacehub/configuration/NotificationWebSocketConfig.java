@@ -1,6 +1,7 @@
 package org.spacehub.configuration;
 
 import org.spacehub.handler.NotificationWebSocketHandler;
+import org.spacehub.handler.WebSocketOutbound;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -11,14 +12,17 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class NotificationWebSocketConfig implements WebSocketConfigurer{
 
   private final NotificationWebSocketHandler notificationWebSocketHandler;
+  private final WebSocketOutbound outbound;
 
-  public NotificationWebSocketConfig(NotificationWebSocketHandler notificationWebSocketHandler) {
+  public NotificationWebSocketConfig(NotificationWebSocketHandler notificationWebSocketHandler,
+                                     WebSocketOutbound outbound) {
     this.notificationWebSocketHandler = notificationWebSocketHandler;
+    this.outbound = outbound;
   }
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-    registry.addHandler(notificationWebSocketHandler, "/notification")
+    registry.addHandler(outbound.wrap(notificationWebSocketHandler, "notification"), "/notification")
             .setAllowedOrigins(
                     "http://localhost:5173",
                     "https://spacehub.monu14.me",
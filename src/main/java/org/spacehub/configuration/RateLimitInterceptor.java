@@ -4,6 +4,7 @@ package org.spacehub.configuration;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.spacehub.service.RateLimit.RateLimitService;
+import org.spacehub.utils.SecurityUtils;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -22,8 +23,7 @@ public class RateLimitInterceptor implements HandlerInterceptor {
                            @NonNull Object handler)
     throws Exception {
 
-    String clientKey = getClientKey(request);
-    boolean allowed = rateLimitService.tryConsume(clientKey);
+    boolean allowed = rateLimitService.tryConsume(request.getRequestURI(), getIdentity(request));
 
     if (!allowed) {
       response.setStatus(429);
@@ -34,6 +34,14 @@ public class RateLimitInterceptor implements HandlerInterceptor {
     return true;
   }
 
+  private String getIdentity(HttpServletRequest request) {
+    String email = SecurityUtils.getCurrentUserEmail();
+    if (email != null && !email.isBlank()) {
+      return "user:" + email.toLowerCase();
+    }
+    return "ip:" + getClientKey(request);
+  }
+
   private String getClientKey(HttpServletRequest request) {
     String ip = request.getHeader("X-Forwarded-For");
 
@@ -0,0 +1,138 @@
+package org.spacehub.configuration.webSocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.Locale;
+
+@Component
+public class StompBrokerSupport {
+
+  private static final String[] BROKER_DESTINATIONS = {"/topic", "/queue"};
+
+  private final String mode;
+  private final StompClusterBridge clusterBridge;
+
+  @Value("${websocket.stomp.relay.host:localhost}")
+  private String relayHost;
+
+  @Value("${websocket.stomp.relay.port:61613}")
+  private int relayPort;
+
+  @Value("${websocket.stomp.relay.login:guest}")
+  private String relayLogin;
+
+  @Value("${websocket.stomp.relay.passcode:guest}")
+  private String relayPasscode;
+
+  @Value("${websocket.stomp.relay.virtual-host:}")
+  private String relayVirtualHost;
+
+  @Value("${websocket.stomp.heartbeat-ms:10000}")
+  private long heartbeatMillis;
+
+  @Value("${websocket.stomp.inbound.core-pool-size:0}")
+  private int inboundCorePoolSize;
+
+  @Value("${websocket.stomp.inbound.max-pool-size:0}")
+  private int inboundMaxPoolSize;
+
+  @Value("${websocket.stomp.inbound.queue-capacity:10000}")
+  private int inboundQueueCapacity;
+
+  @Value("${websocket.stomp.outbound.core-pool-size:0}")
+  private int outboundCorePoolSize;
+
+  @Value("${websocket.stomp.outbound.max-pool-size:0}")
+  private int outboundMaxPoolSize;
+
+  @Value("${websocket.stomp.outbound.queue-capacity:10000}")
+  private int outboundQueueCapacity;
+
+  @Value("${websocket.stomp.send-time-limit-ms:15000}")
+  private int sendTimeLimit;
+
+  @Value("${websocket.stomp.send-buffer-size-limit:524288}")
+  private int sendBufferSizeLimit;
+
+  @Value("${websocket.stomp.message-size-limit:65536}")
+  private int messageSizeLimit;
+
+  private ThreadPoolTaskScheduler heartbeatScheduler;
+
+  public StompBrokerSupport(@Value("${websocket.stomp.broker:simple}") String mode,
+                            StompClusterBridge clusterBridge) {
+    this.mode = mode.trim().toLowerCase(Locale.ROOT);
+    this.clusterBridge = clusterBridge;
+  }
+
+  public void configureBroker(MessageBrokerRegistry registry) {
+    registry.setApplicationDestinationPrefixes("/app");
+    registry.setUserDestinationPrefix("/user");
+
+    if ("relay".equals(mode)) {
+      var relay = registry.enableStompBrokerRelay(BROKER_DESTINATIONS)
+        .setRelayHost(relayHost)
+        .setRelayPort(relayPort)
+        .setClientLogin(relayLogin)
+        .setClientPasscode(relayPasscode)
+        .setSystemLogin(relayLogin)
+        .setSystemPasscode(relayPasscode)
+        .setSystemHeartbeatSendInterval(heartbeatMillis)
+        .setSystemHeartbeatReceiveInterval(heartbeatMillis)
+        .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+        .setUserRegistryBroadcast("/topic/simp-user-registry");
+      if (!relayVirtualHost.isBlank()) relay.setVirtualHost(relayVirtualHost);
+      return;
+    }
+
+    registry.enableSimpleBroker(BROKER_DESTINATIONS)
+      .setHeartbeatValue(new long[] {heartbeatMillis, heartbeatMillis})
+      .setTaskScheduler(heartbeatScheduler());
+
+    if ("redis".equals(mode)) {
+      registry.configureBrokerChannel().interceptors(clusterBridge);
+      clusterBridge.start();
+    }
+  }
+
+  public void configureInbound(ChannelRegistration registration) {
+    configurePool(registration, inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+  }
+
+  public void configureOutbound(ChannelRegistration registration) {
+    configurePool(registration, outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+  }
+
+  public void configureTransport(WebSocketTransportRegistration registration) {
+    registration
+      .setSendTimeLimit(sendTimeLimit)
+      .setSendBufferSizeLimit(sendBufferSizeLimit)
+      .setMessageSizeLimit(messageSizeLimit);
+  }
+
+  private void configurePool(ChannelRegistration registration, int core, int max, int queueCapacity) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    int corePoolSize = core > 0 ? core : cores * 2;
+    registration.taskExecutor()
+      .corePoolSize(corePoolSize)
+      .maxPoolSize(Math.max(corePoolSize, max > 0 ? max : cores * 4))
+      .queueCapacity(queueCapacity);
+  }
+
+  private synchronized ThreadPoolTaskScheduler heartbeatScheduler() {
+    if (heartbeatScheduler == null) {
+      heartbeatScheduler = new ThreadPoolTaskScheduler();
+      heartbeatScheduler.setPoolSize(1);
+      heartbeatScheduler.setThreadNamePrefix("stomp-heartbeat-");
+      heartbeatScheduler.setDaemon(true);
+      heartbeatScheduler.initialize();
+    }
+    return heartbeatScheduler;
+  }
+
+}
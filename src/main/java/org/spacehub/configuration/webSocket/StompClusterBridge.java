@@ -0,0 +1,83 @@
+package org.spacehub.configuration.webSocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.handler.ClusterFanout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Mirrors broker-bound STOMP messages to the other nodes so the simple broker can span the cluster.
+@Component
+public class StompClusterBridge implements ChannelInterceptor {
+
+  private static final Logger logger = LoggerFactory.getLogger(StompClusterBridge.class);
+
+  private static final String RELAYED_HEADER = "spacehubClusterRelayed";
+  private static final String CHANNEL_KEY = "broker";
+
+  private final ObjectMapper objectMapper;
+  private final MessageChannel brokerChannel;
+  private final ClusterFanout.Channel channel;
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  public StompClusterBridge(ObjectMapper objectMapper,
+                            @Lazy @Qualifier("brokerChannel") MessageChannel brokerChannel,
+                            ClusterFanout clusterFanout) {
+    this.objectMapper = objectMapper;
+    this.brokerChannel = brokerChannel;
+    this.channel = clusterFanout.channel("stomp", (key, frame) -> deliver(frame));
+  }
+
+  void start() {
+    if (started.compareAndSet(false, true)) channel.retain(CHANNEL_KEY);
+  }
+
+  @Override
+  public Message<?> preSend(Message<?> message, MessageChannel target) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+    if (accessor.getMessageType() != SimpMessageType.MESSAGE || accessor.getHeader(RELAYED_HEADER) != null
+      || accessor.getDestination() == null || !(message.getPayload() instanceof byte[] payload)) {
+      return message;
+    }
+    try {
+      MimeType contentType = accessor.getContentType();
+      BridgedMessage bridged = new BridgedMessage(accessor.getDestination(),
+        contentType == null ? null : contentType.toString(), Base64.getEncoder().encodeToString(payload));
+      channel.publish(CHANNEL_KEY, new TextMessage(objectMapper.writeValueAsString(bridged)));
+    } catch (Exception e) {
+      logger.warn("Unable to mirror STOMP message for {}", accessor.getDestination(), e);
+    }
+    return message;
+  }
+
+  private void deliver(TextMessage frame) {
+    try {
+      BridgedMessage bridged = objectMapper.readValue(frame.getPayload(), BridgedMessage.class);
+      SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+      accessor.setDestination(bridged.destination());
+      if (bridged.contentType() != null) accessor.setContentType(MimeType.valueOf(bridged.contentType()));
+      accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+      accessor.setLeaveMutable(true);
+      byte[] payload = Base64.getDecoder().decode(bridged.payload());
+      brokerChannel.send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    } catch (Exception e) {
+      logger.warn("Unable to deliver mirrored STOMP message", e);
+    }
+  }
+
+  private record BridgedMessage(String destination, String contentType, String payload) {}
+
+}
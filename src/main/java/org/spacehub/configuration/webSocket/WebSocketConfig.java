@@ -3,20 +3,23 @@ package org.spacehub.configuration.webSocket;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.*;
 import org.spacehub.handler.ChatWebSocketHandler;
+import org.spacehub.handler.WebSocketOutbound;
 
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer{
 
   private final ChatWebSocketHandler chatWebSocketHandler;
+  private final WebSocketOutbound outbound;
 
-  public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler) {
+  public WebSocketConfig(ChatWebSocketHandler chatWebSocketHandler, WebSocketOutbound outbound) {
     this.chatWebSocketHandler = chatWebSocketHandler;
+    this.outbound = outbound;
   }
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-    registry.addHandler(chatWebSocketHandler, "/chat")
+    registry.addHandler(outbound.wrap(chatWebSocketHandler, "chat"), "/chat")
 
             .setAllowedOrigins("*");
 //            .setAllowedOrigins(
@@ -2,6 +2,7 @@ package org.spacehub.configuration.webSocket;
 
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -9,11 +10,30 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocketMessageBroker
 public class WebSocketConfigFriend implements WebSocketMessageBrokerConfigurer{
 
+  private final StompBrokerSupport brokerSupport;
+
+  public WebSocketConfigFriend(StompBrokerSupport brokerSupport) {
+    this.brokerSupport = brokerSupport;
+  }
+
   @Override
   public void configureMessageBroker(MessageBrokerRegistry registry) {
-    registry.enableSimpleBroker("/topic", "/queue");
-    registry.setApplicationDestinationPrefixes("/app");
-    registry.setUserDestinationPrefix("/user");
+    brokerSupport.configureBroker(registry);
+  }
+
+  @Override
+  public void configureClientInboundChannel(ChannelRegistration registration) {
+    brokerSupport.configureInbound(registration);
+  }
+
+  @Override
+  public void configureClientOutboundChannel(ChannelRegistration registration) {
+    brokerSupport.configureOutbound(registration);
+  }
+
+  @Override
+  public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+    brokerSupport.configureTransport(registration);
   }
 
   @Override
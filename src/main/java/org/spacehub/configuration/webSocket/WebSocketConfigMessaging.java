@@ -1,6 +1,7 @@
 package org.spacehub.configuration.webSocket;
 
 import org.spacehub.handler.ChatWebSocketHandlerMessaging;
+import org.spacehub.handler.WebSocketOutbound;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -11,14 +12,16 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfigMessaging implements WebSocketConfigurer {
 
   private final ChatWebSocketHandlerMessaging chatWebSocketHandler;
+  private final WebSocketOutbound outbound;
 
-  public WebSocketConfigMessaging(ChatWebSocketHandlerMessaging chatWebSocketHandler) {
+  public WebSocketConfigMessaging(ChatWebSocketHandlerMessaging chatWebSocketHandler, WebSocketOutbound outbound) {
     this.chatWebSocketHandler = chatWebSocketHandler;
+    this.outbound = outbound;
   }
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-    registry.addHandler(chatWebSocketHandler, "/ws/direct-chat")
+    registry.addHandler(outbound.wrap(chatWebSocketHandler, "direct-chat"), "/ws/direct-chat")
             .setAllowedOriginPatterns(
                     "*",
                     "https://spacehub.monu14.me",
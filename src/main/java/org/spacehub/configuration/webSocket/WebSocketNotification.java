@@ -2,6 +2,7 @@ package org.spacehub.configuration.webSocket;
 
 import lombok.RequiredArgsConstructor;
 import org.spacehub.handler.NotificationWebSocketHandler;
+import org.spacehub.handler.WebSocketOutbound;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -13,10 +14,11 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketNotification implements WebSocketConfigurer {
 
   private final NotificationWebSocketHandler notificationWebSocketHandler;
+  private final WebSocketOutbound outbound;
 
   @Override
   public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-    registry.addHandler(notificationWebSocketHandler, "/notifications").setAllowedOrigins("*");
+    registry.addHandler(outbound.wrap(notificationWebSocketHandler, "notifications"), "/notifications").setAllowedOrigins("*");
   }
 
 }
@@ -41,6 +41,17 @@ public class NewChatRoomController {
     return newChatRoomService.getAllNewChatRoomsSummary(roomCode);
   }
 
+  @GetMapping("/{newChatRoomCode}/messages")
+  public ApiResponse<Map<String, Object>> getMessageHistory(
+    @PathVariable String newChatRoomCode,
+    @RequestParam(value = "beforeTimestamp", required = false) Long beforeTimestamp,
+    @RequestParam(value = "beforeId", required = false) Long beforeId,
+    @RequestParam(value = "beforeUuid", required = false) String beforeUuid,
+    @RequestParam(value = "limit", defaultValue = "50") int limit
+  ) {
+    return newChatRoomService.getMessageHistory(newChatRoomCode, beforeTimestamp, beforeId, beforeUuid, limit);
+  }
+
   @DeleteMapping("/{newChatRoomCode}/delete")
   public ApiResponse<String> deleteNewChatRoom(@PathVariable String newChatRoomCode, @RequestParam("RoomCode") String RoomCode
   ) {
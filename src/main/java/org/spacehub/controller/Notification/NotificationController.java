@@ -31,10 +31,7 @@ public class NotificationController {
   public ResponseEntity<ApiResponse<List<NotificationResponseDTO>>> getUserNotifications(@RequestBody NotificationUserRequest request) {
 
     List<NotificationResponseDTO> notifications =
-            notificationService.getUserNotifications(
-                    request.getScope(),
-                    request.getPage(),
-                    request.getSize());
+            notificationService.getUserNotifications(request);
 
     return ResponseEntity.ok(new ApiResponse<>(200, "Notifications fetched successfully", notifications)
     );
@@ -53,9 +50,7 @@ public class NotificationController {
   public ResponseEntity<ApiResponse<List<NotificationResponseDTO>>> openInbox(@RequestBody NotificationUserRequest request) {
 
     List<NotificationResponseDTO> notifications =
-            notificationService.fetchAndMarkRead(
-                    request.getPage(),
-                    request.getSize());
+            notificationService.fetchAndMarkRead(request);
 
     return ResponseEntity.ok(new ApiResponse<>(200, "Notifications fetched and processed", notifications)
     );
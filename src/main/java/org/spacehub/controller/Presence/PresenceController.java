@@ -1,10 +1,14 @@
 package org.spacehub.controller.Presence;
 
 import lombok.RequiredArgsConstructor;
+import org.spacehub.DTO.presence.OnlineUsersDTO;
 import org.spacehub.DTO.presence.PresenceMessage;
 import org.spacehub.service.Interface.IPresenceService;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 @RequiredArgsConstructor
@@ -24,4 +28,12 @@ public class PresenceController {
     String sessionId = headerAccessor.getSessionId();
     presenceService.userLeft(sessionId);
   }
+
+  // Large communities are paged: resubscribe with the returned nextCursor in a "cursor" header.
+  @SubscribeMapping("/presence/{communityId}/snapshot")
+  public OnlineUsersDTO snapshot(@DestinationVariable Long communityId,
+                                 @Header(name = "cursor", required = false) String cursor,
+                                 @Header(name = "limit", required = false) Integer limit) {
+    return presenceService.getOnlineUsers(communityId, cursor, limit);
+  }
 }
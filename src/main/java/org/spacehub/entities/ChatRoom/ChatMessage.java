@@ -10,11 +10,17 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "chat_messages")
+@Table(
+  name = "chat_messages",
+  indexes = {
+    @Index(name = "idx_chat_msg_room_ts_id", columnList = "new_chat_room_id, timestamp, id")
+  }
+)
 public class ChatMessage {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+  @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false, unique = true, updatable = false, length = 36)
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.User.User;
 import java.time.LocalDateTime;
@@ -62,6 +63,18 @@ public class Community {
 
   private LocalDateTime updatedAt;
 
+  @ColumnDefault("0")
+  @Column(name = "active_member_count", nullable = false, insertable = false, updatable = false)
+  private long activeMemberCount;
+
+  @ColumnDefault("0")
+  @Column(name = "admin_count", nullable = false, insertable = false, updatable = false)
+  private long adminCount;
+
+  @ColumnDefault("0")
+  @Column(name = "pending_request_count", nullable = false, insertable = false, updatable = false)
+  private long pendingRequestCount;
+
   @PrePersist
   public void prePersist() {
     if (communityId == null) {
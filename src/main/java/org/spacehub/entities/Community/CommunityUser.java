@@ -13,6 +13,12 @@ import java.util.UUID;
 @Data
 @Entity
 @ToString
+@Table(
+  indexes = {
+    @Index(name = "idx_community_user_user", columnList = "user_id"),
+    @Index(name = "idx_community_user_community_user", columnList = "community_id, user_id")
+  }
+)
 public class CommunityUser {
 
   @Id
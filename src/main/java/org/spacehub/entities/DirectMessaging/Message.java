@@ -20,7 +20,8 @@ import java.util.UUID;
 public class Message {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "direct_messages_seq")
+  @SequenceGenerator(name = "direct_messages_seq", sequenceName = "direct_messages_seq", allocationSize = 50)
   private Long id;
 
   @Column(nullable = false, unique = true, updatable = false, length = 36)
@@ -9,7 +9,13 @@ import org.spacehub.entities.User.User;
 import org.spacehub.entities.Community.Community;
 
 @Entity
-@Table(name = "notifications")
+@Table(
+  name = "notifications",
+  indexes = {
+    @Index(name = "idx_notification_recipient_created", columnList = "recipient_id, createdAt"),
+    @Index(name = "idx_notification_expires_at", columnList = "expiresAt")
+  }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -2,13 +2,15 @@ package org.spacehub.handler;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.spacehub.DTO.chatroom.ChatHistoryFrame;
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
+import org.spacehub.DTO.chatroom.ChatMessageFrame;
+import org.spacehub.DTO.chatroom.DeleteFrame;
+import org.spacehub.DTO.chatroom.SystemFrame;
 import org.spacehub.entities.ChatRoom.ChatMessage;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
-import org.spacehub.entities.User.User;
-import org.spacehub.repository.User.UserRepository;
 import org.spacehub.service.File.S3Service;
+import org.spacehub.service.Profile.UserProfileCache;
 import org.spacehub.service.chatRoom.ChatMessageQueue;
 import org.spacehub.service.chatRoom.NewChatRoomService;
 import org.spacehub.utils.S3PreviewHelper;
@@ -27,9 +29,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -44,6 +44,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
   private static final Logger logger = LoggerFactory.getLogger(ChatWebSocketHandler.class);
 
+  private static final int INITIAL_HISTORY_SIZE = 50;
+
   private final Map<String, Set<WebSocketSession>> rooms = new ConcurrentHashMap<>();
   private final Map<WebSocketSession, String> sessionRoom = new ConcurrentHashMap<>();
   private final Map<WebSocketSession, String> userSessions = new ConcurrentHashMap<>();
@@ -51,20 +53,29 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
   private final NewChatRoomService newChatRoomService;
   private final ChatMessageQueue chatMessageQueue;
   private final S3Service s3Service;
-  private final UserRepository userRepository;
+  private final UserProfileCache userProfileCache;
   private final ObjectMapper objectMapper;
+  private final WebSocketFrameEncoder frameEncoder;
+  private final WebSocketOutbound outbound;
+  private final ClusterFanout.Channel roomChannel;
 
   public ChatWebSocketHandler(NewChatRoomService newChatRoomService,
                               ChatMessageQueue chatMessageQueue,
                               S3Service s3Service,
-                              UserRepository userRepository) {
+                              UserProfileCache userProfileCache,
+                              ObjectMapper objectMapper,
+                              WebSocketFrameEncoder frameEncoder,
+                              WebSocketOutbound outbound,
+                              ClusterFanout clusterFanout) {
     this.newChatRoomService = newChatRoomService;
     this.chatMessageQueue = chatMessageQueue;
     this.s3Service = s3Service;
-    this.userRepository = userRepository;
-    this.objectMapper = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    this.userProfileCache = userProfileCache;
+    this.objectMapper = objectMapper;
+    this.frameEncoder = frameEncoder;
+    this.outbound = outbound;
+    this.roomChannel = clusterFanout.channel("room", (roomCode, frame) ->
+            outbound.fanOut(rooms.getOrDefault(roomCode, Collections.emptySet()), frame));
   }
 
   @Override
@@ -129,10 +140,8 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
   }
 
   private void broadcastSystemMessage(String roomCode, String text) {
-    Map<String, Object> system = Map.of("type", "SYSTEM", "message", text, "timestamp",
-      Instant.now().toEpochMilli());
     try {
-      broadcastToRoom(roomCode, system);
+      broadcastToRoom(roomCode, new SystemFrame("SYSTEM", text, Instant.now().toEpochMilli()));
     }
     catch (IOException ignored) {
 
@@ -141,33 +150,67 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
 
   private void addSessionToRoom(WebSocketSession session, String roomCode, String email) {
     rooms.computeIfAbsent(roomCode, k -> ConcurrentHashMap.newKeySet()).add(session);
+    roomChannel.retain(roomCode);
     sessionRoom.put(session, roomCode);
     userSessions.put(session, email);
   }
 
   private void sendExistingMessages(WebSocketSession session, NewChatRoom newChatRoom) {
-    List<ChatMessage> history = chatMessageQueue.getMessagesForNewChatRoom(newChatRoom);
-    history.sort(Comparator.comparingLong(ChatMessage::getTimestamp));
-
+    ChatHistoryPage page = chatMessageQueue.getHistoryPage(newChatRoom, null, null, null, INITIAL_HISTORY_SIZE);
     try {
-      List<Map<String, Object>> formatted = new ArrayList<>();
-      for (ChatMessage message : history) {
-        Map<String, Object> payload = buildMessagePayload(message);
-        boolean inMemory = chatMessageQueue.isPending(message.getMessageUuid());
-        payload.put("optimistic", inMemory);
-        formatted.add(payload);
-      }
-      Map<String, Object> response = Map.of(
-              "type", "history",
-              "roomCode", newChatRoom.getRoomCode(),
-              "messages", formatted);
-      session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
+      sendHistoryPage(session, "history", newChatRoom, page);
     }
     catch (IOException e) {
       logger.error("Error sending chat history", e);
     }
   }
 
+  private void handleHistoryBefore(String roomCode, Map<String, Object> payload, WebSocketSession session)
+    throws IOException {
+    var optionalRoom = newChatRoomService.getEntityByCode(UUID.fromString(roomCode));
+    if (optionalRoom.isEmpty()) {
+      sendSystemMessage(session, "Chat room not found");
+      return;
+    }
+
+    Long beforeTimestamp = toLong(payload.get("beforeTimestamp"));
+    if (beforeTimestamp == null) {
+      sendSystemMessage(session, "Missing beforeTimestamp for HISTORY_BEFORE request");
+      return;
+    }
+    Long beforeId = toLong(payload.get("beforeId"));
+    Object beforeUuid = payload.get("beforeUuid");
+    Long limit = toLong(payload.get("limit"));
+    int size = limit == null ? INITIAL_HISTORY_SIZE : limit.intValue();
+
+    ChatHistoryPage page = chatMessageQueue.getHistoryPage(optionalRoom.get(), beforeTimestamp, beforeId,
+      beforeUuid == null ? null : beforeUuid.toString(), size);
+    sendHistoryPage(session, "history_page", optionalRoom.get(), page);
+  }
+
+  private void sendHistoryPage(WebSocketSession session, String type, NewChatRoom newChatRoom,
+                               ChatHistoryPage page) throws IOException {
+    List<ChatMessageFrame> formatted = new ArrayList<>(page.getMessages().size());
+    for (ChatMessage message : page.getMessages()) {
+      formatted.add(toFrame(message, chatMessageQueue.isPending(message.getMessageUuid())));
+    }
+    ChatHistoryFrame response = new ChatHistoryFrame(type, newChatRoom.getRoomCode(), formatted, page.isHasMore(),
+            page.getNextBeforeTimestamp(), page.getNextBeforeId(), page.getNextBeforeUuid());
+    session.sendMessage(frameEncoder.encode(response));
+  }
+
+  private Long toLong(Object value) {
+    if (value instanceof Number number) return number.longValue();
+    if (value instanceof String str && !str.isBlank()) {
+      try {
+        return Long.parseLong(str.trim());
+      } catch (NumberFormatException ignored) {
+        return null;
+      }
+    }
+    return null;
+  }
+
   @Override
   public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
     String roomCode = sessionRoom.remove(session);
@@ -176,6 +219,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
       Set<WebSocketSession> set = rooms.getOrDefault(roomCode, ConcurrentHashMap.newKeySet());
       set.remove(session);
       if (set.isEmpty()) rooms.remove(roomCode);
+      roomChannel.release(roomCode);
       broadcastSystemMessage(roomCode, email + " left the chat");
     }
   }
@@ -196,6 +240,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
       switch (type) {
         case "FILE" -> handleFileMessage(roomCode, senderEmail, clientPayload, session);
         case "DELETE" -> handleDeleteMessage(roomCode, senderEmail, clientPayload);
+        case "HISTORY_BEFORE" -> handleHistoryBefore(roomCode, clientPayload, session);
         default -> handleTextMessage(roomCode, senderEmail, clientPayload, session);
       }
     }
@@ -224,10 +269,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             .build();
 
     chatMessageQueue.enqueue(message);
-
-    Map<String, Object> messagePayload = buildMessagePayload(message);
-    messagePayload.put("optimistic", true);
-    broadcastToRoom(roomCode, messagePayload);
+    broadcastToRoom(roomCode, toFrame(message, true));
   }
 
   private void handleFileMessage(String roomCode, String senderEmail, Map<String, Object> payload,
@@ -259,10 +301,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             .build();
 
     chatMessageQueue.enqueue(message);
-
-    Map<String, Object> messagePayload = buildMessagePayload(message);
-    messagePayload.put("optimistic", true);
-    broadcastToRoom(roomCode, messagePayload);
+    broadcastToRoom(roomCode, toFrame(message, true));
   }
 
   private void handleDeleteMessage(String roomCode, String senderEmail, Map<String, Object> payload)
@@ -281,12 +320,7 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
       return;
     }
 
-    Map<String, Object> deletePayload = Map.of(
-            "type", "DELETE",
-            "messageUuid", messageUuid,
-            "deletedBy", senderEmail,
-            "timestamp", Instant.now().toEpochMilli());
-    broadcastToRoom(roomCode, deletePayload);
+    broadcastToRoom(roomCode, new DeleteFrame(messageUuid, senderEmail, Instant.now().toEpochMilli()));
   }
 
   private WebSocketSession findSessionFor(String roomCode, String email) {
@@ -296,42 +330,31 @@ public class ChatWebSocketHandler extends TextWebSocketHandler {
             .map(Map.Entry::getKey).findFirst().orElse(null);
   }
 
-  private Map<String, Object> buildMessagePayload(ChatMessage message) {
-    Map<String, Object> payload = new LinkedHashMap<>();
-    payload.put("messageUuid", message.getMessageUuid());
-    payload.put("type", message.getType());
-    payload.put("senderEmail", message.getSenderEmail());
-    payload.put("message", message.getMessage());
-    payload.put("timestamp", message.getTimestamp());
-    payload.put("fileName", message.getFileName());
-    payload.put("fileUrl", message.getFileUrl());
-    payload.put("contentType", message.getContentType());
-
-    try {
-      Optional<User> sUser = userRepository.findByEmail(message.getSenderEmail());
-      payload.put("senderUsername", sUser.map(User::getUsername).orElse(null));
-    }
-    catch (Exception ignored) {
-      payload.put("senderUsername", null);
-    }
-    return payload;
+  private ChatMessageFrame toFrame(ChatMessage message, boolean optimistic) {
+    return new ChatMessageFrame(
+            message.getMessageUuid(),
+            message.getType(),
+            message.getSenderEmail(),
+            message.getMessage(),
+            message.getTimestamp(),
+            message.getFileName(),
+            message.getFileUrl(),
+            message.getContentType(),
+            userProfileCache.getUsername(message.getSenderEmail()),
+            optimistic);
   }
 
-  private void broadcastToRoom(String roomCode, Map<String, Object> payload) throws IOException {
-    Set<WebSocketSession> sessions = rooms.getOrDefault(roomCode, Collections.emptySet());
-    String json = objectMapper.writeValueAsString(payload);
-    for (WebSocketSession s : sessions) {
-      if (s != null && s.isOpen()) {
-        s.sendMessage(new TextMessage(json));
-      }
-    }
+  private void broadcastToRoom(String roomCode, Object payload) throws IOException {
+    TextMessage frame = frameEncoder.encode(payload);
+    outbound.fanOut(rooms.getOrDefault(roomCode, Collections.emptySet()), frame);
+    roomChannel.publish(roomCode, frame);
   }
 
   private void sendSystemMessage(WebSocketSession session, String content) throws IOException {
     if (session == null) return;
     Map<String, Object> sys = Map.of("type", "system", "system", content, "timestamp",
       Instant.now().toEpochMilli());
-    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(sys)));
+    session.sendMessage(frameEncoder.encode(sys));
   }
 
 }
@@ -2,15 +2,16 @@ package org.spacehub.handler;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.spacehub.DTO.DirectMessaging.ConfirmFrame;
+import org.spacehub.DTO.DirectMessaging.DirectMessageFrame;
+import org.spacehub.DTO.chatroom.DeleteFrame;
 import org.spacehub.entities.DirectMessaging.Message;
-import org.spacehub.entities.User.User;
-import org.spacehub.repository.User.UserRepository;
 import org.spacehub.service.Friend.FriendService;
 import org.spacehub.service.Message.MessageQueueService;
 import org.spacehub.service.Interface.IMessageService;
 import org.spacehub.service.File.S3Service;
+import org.spacehub.service.Profile.UserProfileCache;
+import org.spacehub.service.serviceAuth.UserSnapshotCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
@@ -34,31 +35,44 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
   private final MessageQueueService messageQueueService;
   private final IMessageService messageService;
   private final S3Service s3Service;
-  private final UserRepository userRepository;
+  private final UserSnapshotCache userSnapshotCache;
   private final ObjectMapper objectMapper;
   private final FriendService friendService;
+  private final UserProfileCache userProfileCache;
+  private final WebSocketFrameEncoder frameEncoder;
+  private final WebSocketOutbound outbound;
+  private final ClusterFanout.Channel userChannel;
 
   private final Map<String, Set<WebSocketSession>> rooms = new ConcurrentHashMap<>();
   private final Map<WebSocketSession, String> sessionRoom = new ConcurrentHashMap<>();
   private final Map<WebSocketSession, String> userSessions = new ConcurrentHashMap<>();
   private final Map<String, Set<WebSocketSession>> activeUsers = new ConcurrentHashMap<>();
   private final Map<WebSocketSession, Map<String, String>> sessionMetadata = new ConcurrentHashMap<>();
-  private final Map<String, String> usernameCache = new ConcurrentHashMap<>();
 
   public ChatWebSocketHandlerMessaging(
           MessageQueueService messageQueueService,
           IMessageService messageService,
           S3Service s3Service,
-          UserRepository userRepository,
-          FriendService friendService) {
+          UserSnapshotCache userSnapshotCache,
+          FriendService friendService,
+          UserProfileCache userProfileCache,
+          ObjectMapper objectMapper,
+          WebSocketFrameEncoder frameEncoder,
+          WebSocketOutbound outbound,
+          ClusterFanout clusterFanout) {
     this.messageQueueService = messageQueueService;
     this.messageService = messageService;
     this.s3Service = s3Service;
-    this.userRepository = userRepository;
+    this.userSnapshotCache = userSnapshotCache;
     this.friendService = friendService;
-    this.objectMapper = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
-            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    this.userProfileCache = userProfileCache;
+    this.objectMapper = objectMapper;
+    this.frameEncoder = frameEncoder;
+    this.outbound = outbound;
+    this.userChannel = clusterFanout.channel("user", (email, frame) -> {
+      Set<WebSocketSession> sessions = activeUsers.get(email);
+      if (sessions != null) outbound.fanOut(sessions, frame);
+    });
   }
 
   @Override
@@ -76,7 +90,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     String senderEmail = normalizeEmail(senderEmailRaw);
     String receiverEmail = receiverEmailRaw == null ? null : normalizeEmail(receiverEmailRaw);
     try {
-      if (userRepository.findByEmail(senderEmail).isEmpty()) {
+      if (userSnapshotCache.get(senderEmail) == null) {
         sendSystemMessage(session, "Sender does not exist.");
         try { session.close(CloseStatus.BAD_DATA); } catch (IOException ignored) {}
         return;
@@ -91,6 +105,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     }
     sessionMetadata.put(session, params);
     activeUsers.computeIfAbsent(senderEmail, k -> ConcurrentHashMap.newKeySet()).add(session);
+    userChannel.retain(senderEmail);
     userSessions.put(session, senderEmail);
     if (receiverEmail != null && !receiverEmail.isBlank()) {
       String chatKey = messageQueueService.buildChatKey(senderEmail, receiverEmail);
@@ -108,7 +123,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     }
     if (receiverEmail != null && !receiverEmail.isBlank()) {
       try {
-        if (userRepository.findByEmail(receiverEmail).isEmpty()) {
+        if (userSnapshotCache.get(receiverEmail) == null) {
           sendSystemMessage(session, "Receiver not found.");
         } else if (!friendService.areFriends(senderEmail, receiverEmail)) {
           sendSystemMessage(session, "You can only chat with friends.");
@@ -129,20 +144,17 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
   private void processUnreadMessages(WebSocketSession session, String senderEmail) throws Exception {
     List<Message> unread = messageService.getUnreadMessages(senderEmail);
     if (unread == null || unread.isEmpty()) return;
-    List<Map<String, Object>> formatted = new ArrayList<>();
+    List<DirectMessageFrame> formatted = new ArrayList<>();
     for (Message message : unread) {
       try {
         if (shouldHideForRequester(message, senderEmail)) continue;
-        Map<String, Object> payload = buildPayload(message);
         boolean pending = messageQueueService.isPending(message.getMessageUuid());
-        payload.put("optimistic", pending);
-        addPreviewIfFileQuiet(payload, message.getType(), message.getFileKey());
-        formatted.add(payload);
+        formatted.add(addPreviewIfFileQuiet(toFrame(message, pending), message.getType(), message.getFileKey()));
       } catch (Exception ignored) {}
     }
-    formatted.sort(Comparator.comparingLong(m -> ((Number) m.get("timestamp")).longValue()));
+    formatted.sort(Comparator.comparingLong(DirectMessageFrame::timestamp));
     Map<String, Object> unreadPayload = Map.of("type", "unread", "count", formatted.size(), "messages", formatted);
-    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(unreadPayload)));
+    session.sendMessage(frameEncoder.encode(unreadPayload));
   }
 
   private void processHistoryForReceiver(WebSocketSession session, String senderEmail, String receiverEmail) throws Exception {
@@ -158,12 +170,12 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     for (Message m : pending) {
       if (!shouldHideForRequester(m, senderEmail)) filteredPending.add(m);
     }
-    List<Map<String, Object>> formatted = mergeAndFormatMessages(filteredDb, filteredPending);
+    List<DirectMessageFrame> formatted = mergeAndFormatMessages(filteredDb, filteredPending);
     Map<String, Object> payload = Map.of("type", "history", "chatWith", receiverEmail, "messages", formatted);
-    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+    session.sendMessage(frameEncoder.encode(payload));
   }
 
-  private List<Map<String, Object>> mergeAndFormatMessages(List<Message> dbMessages, List<Message> pendingMessages) {
+  private List<DirectMessageFrame> mergeAndFormatMessages(List<Message> dbMessages, List<Message> pendingMessages) {
     Map<String, MessageEntry> byUuid = new LinkedHashMap<>();
     for (Message m : dbMessages) {
       if (m != null && m.getMessageUuid() != null) byUuid.put(m.getMessageUuid(), new MessageEntry(m, false));
@@ -179,13 +191,10 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
       if (cmp != 0) return cmp;
       return a.msg.getMessageUuid().compareTo(b.msg.getMessageUuid());
     });
-    List<Map<String, Object>> formatted = new ArrayList<>();
+    List<DirectMessageFrame> formatted = new ArrayList<>(entries.size());
     for (MessageEntry e : entries) {
       try {
-        Map<String, Object> payload = buildPayload(e.msg);
-        payload.put("optimistic", e.optimistic);
-        addPreviewIfFileQuiet(payload, e.msg.getType(), e.msg.getFileKey());
-        formatted.add(payload);
+        formatted.add(addPreviewIfFileQuiet(toFrame(e.msg, e.optimistic), e.msg.getType(), e.msg.getFileKey()));
       } catch (Exception ignored) {}
     }
     return formatted;
@@ -204,13 +213,13 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     return m.getDeletedAt() != null;
   }
 
-  private void addPreviewIfFileQuiet(Map<String, Object> payload, String type, String fileKey) {
+  private DirectMessageFrame addPreviewIfFileQuiet(DirectMessageFrame frame, String type, String fileKey) {
     if ("FILE".equalsIgnoreCase(type) && fileKey != null) {
       try {
-        String previewUrl = s3Service.generatePresignedDownloadUrl(fileKey, Duration.ofMinutes(10));
-        payload.put("previewUrl", previewUrl);
+        return frame.withPreviewUrl(s3Service.generatePresignedDownloadUrl(fileKey, Duration.ofMinutes(10)));
       } catch (Exception ignored) {}
     }
+    return frame;
   }
 
   @Override
@@ -263,9 +272,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
             .type("MESSAGE")
             .build();
     messageQueueService.enqueue(mess);
-    Map<String, Object> sendPayload = buildPayload(mess);
-    sendPayload.put("optimistic", true);
-    sendToUsers(Set.of(senderEmail), sendPayload);
+    sendToUsers(Set.of(senderEmail), toFrame(mess, true));
   }
 
   private void handleFileMessage(String chatKey, String senderEmail, Map<String, Object> payload,
@@ -300,10 +307,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
             .type("FILE")
             .build();
     messageQueueService.enqueue(mess);
-    Map<String, Object> payloadSend = buildPayload(mess);
-    if (previewUrl != null) payloadSend.put("previewUrl", previewUrl);
-    payloadSend.put("optimistic", true);
-    sendToUsers(Set.of(senderEmail), payloadSend);
+    sendToUsers(Set.of(senderEmail), toFrame(mess, true).withPreviewUrl(previewUrl));
   }
 
   private void handleReadMessages(Map<String, Object> payload) {
@@ -331,7 +335,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
       return;
     }
     String receiverEmail = deriveOtherFromChatKey(chatKey, senderEmail);
-    Map<String, Object> resp = Map.of("type", "DELETE", "messageUuid", messageUuid, "deletedBy", senderEmail, "timestamp", Instant.now().toEpochMilli());
+    DeleteFrame resp = new DeleteFrame(messageUuid, senderEmail, Instant.now().toEpochMilli());
     if (receiverEmail != null) {
       sendToUsers(Set.of(senderEmail, receiverEmail), resp);
     } else {
@@ -343,59 +347,59 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
     List<String> partners = messageService.getAllChatPartners(senderEmail);
     if (partners == null || partners.isEmpty()) {
       Map<String, Object> empty = Map.of("type", "chatSummary", "rooms", List.of());
-      session.sendMessage(new TextMessage(objectMapper.writeValueAsString(empty)));
+      session.sendMessage(frameEncoder.encode(empty));
       return;
     }
+    Map<String, Long> unread = messageService.countUnreadMessagesByPartner(senderEmail);
     List<Map<String, Object>> summary = new ArrayList<>();
     for (String partner : partners) {
-      summary.add(Map.of("chatPartner", partner, "unreadCount", messageService.countUnreadMessagesInChat(senderEmail, partner)));
+      long unreadCount = partner == null ? 0L : unread.getOrDefault(partner.toLowerCase(Locale.ROOT), 0L);
+      summary.add(Map.of("chatPartner", partner, "unreadCount", unreadCount));
     }
     Map<String, Object> summaryPayload = Map.of("type", "chatSummary", "rooms", summary);
-    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(summaryPayload)));
+    session.sendMessage(frameEncoder.encode(summaryPayload));
   }
 
-  private void sendToUsers(Set<String> emails, Map<String, Object> payload) throws IOException {
+  private void sendToUsers(Set<String> emails, Object payload) throws IOException {
     if (emails == null || emails.isEmpty()) return;
-    String json = objectMapper.writeValueAsString(payload);
+    TextMessage frame = frameEncoder.encode(payload);
     Set<WebSocketSession> targets = new LinkedHashSet<>();
     for (String email : emails) {
-      Set<WebSocketSession> sessions = activeUsers.get(email.toLowerCase(Locale.ROOT));
+      String key = email.toLowerCase(Locale.ROOT);
+      Set<WebSocketSession> sessions = activeUsers.get(key);
       if (sessions != null) targets.addAll(sessions);
+      userChannel.publish(key, frame);
     }
-    for (WebSocketSession session : targets) {
-      if (session != null && session.isOpen()) {
-        session.sendMessage(new TextMessage(json));
-      }
-    }
+    outbound.fanOut(targets, frame);
   }
 
-  private Map<String, Object> buildPayload(Message message) {
-    Map<String, Object> payload = new LinkedHashMap<>();
-    payload.put("messageId", message.getId());
-    payload.put("messageUuid", message.getMessageUuid());
-    payload.put("type", message.getType());
-    payload.put("senderEmail", message.getSenderEmail());
-    payload.put("receiverEmail", message.getReceiverEmail());
-    payload.put("content", message.getContent());
-    payload.put("message", message.getContent());
+  private DirectMessageFrame toFrame(Message message, boolean optimistic) {
+    boolean file = "FILE".equalsIgnoreCase(message.getType());
     long epochMillis = message.getTimestamp() != null ? message.getTimestamp() : Instant.now().toEpochMilli();
-    payload.put("timestamp", epochMillis);
-    payload.put("readStatus", message.getReadStatus());
-    payload.put("senderDeleted", message.getSenderDeleted());
-    payload.put("receiverDeleted", message.getReceiverDeleted());
-    payload.put("senderUsername", getUsername(message.getSenderEmail()));
-    payload.put("receiverUsername", getUsername(message.getReceiverEmail()));
-    if ("FILE".equalsIgnoreCase(message.getType())) {
-      payload.put("fileName", message.getFileName());
-      payload.put("fileKey", message.getFileKey());
-      payload.put("contentType", message.getContentType());
-    }
-    return payload;
+    return new DirectMessageFrame(
+      message.getId(),
+      message.getMessageUuid(),
+      message.getType(),
+      message.getSenderEmail(),
+      message.getReceiverEmail(),
+      message.getContent(),
+      message.getContent(),
+      epochMillis,
+      message.getReadStatus(),
+      message.getSenderDeleted(),
+      message.getReceiverDeleted(),
+      getUsername(message.getSenderEmail()),
+      getUsername(message.getReceiverEmail()),
+      file ? message.getFileName() : null,
+      file ? message.getFileKey() : null,
+      file ? message.getContentType() : null,
+      null,
+      optimistic);
   }
 
   private String getUsername(String email) {
     if (email == null) return null;
-    return usernameCache.computeIfAbsent(email, e -> userRepository.findByEmail(e).map(User::getUsername).orElse(null));
+    return userProfileCache.getUsername(email);
   }
 
   private String deriveOtherFromChatKey(String chatKey, String selfEmail) {
@@ -421,6 +425,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
         userSet.remove(session);
         if (userSet.isEmpty()) activeUsers.remove(email.toLowerCase(Locale.ROOT));
       }
+      userChannel.release(email.toLowerCase(Locale.ROOT));
     }
     if (room != null) {
       Set<WebSocketSession> set = rooms.getOrDefault(room, ConcurrentHashMap.newKeySet());
@@ -441,6 +446,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
         userSet.remove(session);
         if (userSet.isEmpty()) activeUsers.remove(email.toLowerCase(Locale.ROOT));
       }
+      userChannel.release(email.toLowerCase(Locale.ROOT));
     }
     if (room != null) {
       Set<WebSocketSession> set = rooms.getOrDefault(room, ConcurrentHashMap.newKeySet());
@@ -469,15 +475,13 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
   private void sendSystemMessage(WebSocketSession session, String content) throws IOException {
     if (session == null || !session.isOpen()) return;
     Map<String, Object> sys = Map.of("type", "system", "system", content, "timestamp", Instant.now().toEpochMilli());
-    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(sys)));
+    session.sendMessage(frameEncoder.encode(sys));
   }
 
   public void confirmAndBroadcast(Message message) {
     try {
-      Map<String, Object> payload = buildPayload(message);
-      payload.put("optimistic", false);
-      addPreviewIfFileQuiet(payload, message.getType(), message.getFileKey());
-      Map<String, Object> confirm = Map.of("type", "CONFIRM", "messageUuid", message.getMessageUuid(), "messageId", message.getId(), "timestamp", message.getTimestamp(), "message", payload);
+      DirectMessageFrame payload = addPreviewIfFileQuiet(toFrame(message, false), message.getType(), message.getFileKey());
+      ConfirmFrame confirm = new ConfirmFrame(payload);
       try { sendToUsers(Set.of(message.getSenderEmail(), message.getReceiverEmail()), confirm); } catch (IOException ignored) {}
       try { sendToUsers(Set.of(message.getSenderEmail(), message.getReceiverEmail()), payload); } catch (IOException ignored) {}
     } catch (Exception e) {
@@ -487,9 +491,7 @@ public class ChatWebSocketHandlerMessaging extends TextWebSocketHandler {
 
   public void broadcastMessageToUsers(Message message) {
     try {
-      Map<String, Object> payload = buildPayload(message);
-      payload.put("optimistic", false);
-      addPreviewIfFileQuiet(payload, message.getType(), message.getFileKey());
+      DirectMessageFrame payload = addPreviewIfFileQuiet(toFrame(message, false), message.getType(), message.getFileKey());
       sendToUsers(Set.of(message.getSenderEmail(), message.getReceiverEmail()), payload);
     } catch (Exception ignored) {}
   }
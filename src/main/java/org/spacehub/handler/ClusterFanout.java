@@ -0,0 +1,205 @@
+package org.spacehub.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+@Component
+public class ClusterFanout {
+
+  private static final Logger logger = LoggerFactory.getLogger(ClusterFanout.class);
+
+  private static final String TOPIC_PREFIX = "spacehub:ws:";
+
+  private final RedissonClient redissonClient;
+  private final ObjectMapper objectMapper;
+  private final boolean enabled;
+  private final int maxBatch;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final ExecutorService[] publishers;
+
+  private final Counter publishes;
+  private final Counter publishedFrames;
+  private final Counter receivedFrames;
+
+  public ClusterFanout(RedissonClient redissonClient,
+                       ObjectMapper objectMapper,
+                       @Value("${cluster.fanout.enabled:true}") boolean enabled,
+                       @Value("${cluster.fanout.max-batch:100}") int maxBatch,
+                       @Value("${cluster.fanout.publisher-threads:2}") int publisherThreads,
+                       MeterRegistry meterRegistry) {
+    this.redissonClient = redissonClient;
+    this.objectMapper = objectMapper;
+    this.enabled = enabled;
+    this.maxBatch = Math.max(1, maxBatch);
+
+    int count = Math.max(1, publisherThreads);
+    this.publishers = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      String name = "cluster-publish-" + i;
+      publishers[i] = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    this.publishes = Counter.builder("cluster.fanout.publishes").register(meterRegistry);
+    this.publishedFrames = Counter.builder("cluster.fanout.frames").tag("direction", "out").register(meterRegistry);
+    this.receivedFrames = Counter.builder("cluster.fanout.frames").tag("direction", "in").register(meterRegistry);
+  }
+
+  public Channel channel(String scope, BiConsumer<String, TextMessage> localDelivery) {
+    return new Channel(scope, localDelivery);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ExecutorService publisher : publishers) {
+      publisher.shutdown();
+    }
+    for (ExecutorService publisher : publishers) {
+      try {
+        publisher.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private record Envelope(String origin, List<String> frames) {}
+
+  public final class Channel {
+
+    private final String scope;
+    private final BiConsumer<String, TextMessage> localDelivery;
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    private Channel(String scope, BiConsumer<String, TextMessage> localDelivery) {
+      this.scope = scope;
+      this.localDelivery = localDelivery;
+    }
+
+    public void retain(String key) {
+      if (!enabled || key == null) return;
+      subscriptions.compute(key, (k, existing) -> {
+        if (existing != null) {
+          existing.refs++;
+          return existing;
+        }
+        Subscription created = new Subscription();
+        try {
+          created.listenerId = topic(k).addListener(String.class, (channel, message) -> receive(k, message));
+        } catch (Exception e) {
+          logger.warn("Unable to subscribe to {}, delivering locally only", topicName(k), e);
+        }
+        return created;
+      });
+    }
+
+    public void release(String key) {
+      if (!enabled || key == null) return;
+      subscriptions.computeIfPresent(key, (k, existing) -> {
+        if (--existing.refs > 0) return existing;
+        if (existing.listenerId != null) {
+          try {
+            topic(k).removeListener(existing.listenerId);
+          } catch (Exception e) {
+            logger.warn("Unable to unsubscribe from {}", topicName(k), e);
+          }
+        }
+        return null;
+      });
+    }
+
+    // Frames queued while a publish for the same key is in flight go out together as one envelope.
+    public void publish(String key, TextMessage frame) {
+      if (!enabled || key == null) return;
+      Outbox outbox = outboxes.computeIfAbsent(key, k -> new Outbox());
+      outbox.frames.add(frame.getPayload());
+      if (!outbox.scheduled.compareAndSet(false, true)) return;
+      ExecutorService publisher = publishers[Math.floorMod(key.hashCode(), publishers.length)];
+      try {
+        publisher.execute(() -> flush(key, outbox));
+      } catch (RejectedExecutionException e) {
+        outbox.scheduled.set(false);
+      }
+    }
+
+    private void flush(String key, Outbox outbox) {
+      do {
+        outbox.scheduled.set(false);
+        List<String> batch = new ArrayList<>();
+        String frame;
+        while (batch.size() < maxBatch && (frame = outbox.frames.poll()) != null) {
+          batch.add(frame);
+        }
+        if (batch.isEmpty()) continue;
+        try {
+          topic(key).publish(objectMapper.writeValueAsString(new Envelope(nodeId, batch)));
+          publishes.increment();
+          publishedFrames.increment(batch.size());
+        } catch (Exception e) {
+          logger.warn("Failed to publish {} frames to {}", batch.size(), topicName(key), e);
+        }
+      } while (!outbox.frames.isEmpty() && outbox.scheduled.compareAndSet(false, true));
+      outboxes.computeIfPresent(key, (k, o) -> o.frames.isEmpty() && !o.scheduled.get() ? null : o);
+    }
+
+    private void receive(String key, String message) {
+      try {
+        Envelope envelope = objectMapper.readValue(message, Envelope.class);
+        if (nodeId.equals(envelope.origin())) return;
+        receivedFrames.increment(envelope.frames().size());
+        for (String frame : envelope.frames()) {
+          localDelivery.accept(key, new TextMessage(frame));
+        }
+      } catch (Exception e) {
+        logger.warn("Dropping malformed cluster frame on {}", topicName(key), e);
+      }
+    }
+
+    private RTopic topic(String key) {
+      return redissonClient.getTopic(topicName(key), StringCodec.INSTANCE);
+    }
+
+    private String topicName(String key) {
+      return TOPIC_PREFIX + scope + ":" + key;
+    }
+  }
+
+  private static final class Subscription {
+    private int refs = 1;
+    private Integer listenerId;
+  }
+
+  private static final class Outbox {
+    private final Queue<String> frames = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+  }
+
+}
@@ -1,13 +1,21 @@
 package org.spacehub.handler;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.DTO.Notification.NotificationBatchFrame;
+import org.spacehub.DTO.Notification.NotificationPageFrame;
 import org.spacehub.DTO.Notification.NotificationResponseDTO;
 import org.spacehub.entities.Notification.Notification;
 import org.spacehub.mapper.NotificationMapper;
 import org.spacehub.repository.Notification.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
@@ -16,22 +24,71 @@ import org.springframework.web.socket.handler.TextWebSocketHandler;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@RequiredArgsConstructor
 public class NotificationWebSocketHandler extends TextWebSocketHandler{
 
+  private static final Logger logger = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
+
   private final NotificationRepository notificationRepository;
   private final NotificationMapper notificationMapper;
-
-  private final Map<String, WebSocketSession> userSessions = new ConcurrentHashMap<>();
-
-  private final ObjectMapper objectMapper = new ObjectMapper()
-          .registerModule(new JavaTimeModule())
-          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final WebSocketOutbound outbound;
+  private final WebSocketFrameEncoder frameEncoder;
+  private final ObjectMapper objectMapper;
+  private final int pageSize;
+  private final int queueCapacity;
+  private final long coalesceMillis;
+
+  private final Map<String, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
+  private final Map<String, PushQueue> pushQueues = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService pushScheduler;
+
+  private final Counter pushedNotifications;
+  private final Counter pushedFrames;
+  private final Counter droppedNotifications;
+
+  public NotificationWebSocketHandler(NotificationRepository notificationRepository,
+                                      NotificationMapper notificationMapper,
+                                      WebSocketOutbound outbound,
+                                      WebSocketFrameEncoder frameEncoder,
+                                      ObjectMapper objectMapper,
+                                      @Value("${notification.ws.page-size:50}") int pageSize,
+                                      @Value("${notification.ws.queue-capacity:100}") int queueCapacity,
+                                      @Value("${notification.ws.coalesce-ms:100}") long coalesceMillis,
+                                      MeterRegistry meterRegistry) {
+    this.notificationRepository = notificationRepository;
+    this.notificationMapper = notificationMapper;
+    this.outbound = outbound;
+    this.frameEncoder = frameEncoder;
+    this.objectMapper = objectMapper;
+    this.pageSize = Math.max(1, pageSize);
+    this.queueCapacity = Math.max(1, queueCapacity);
+    this.coalesceMillis = Math.max(0, coalesceMillis);
+
+    this.pushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "notification-push");
+      t.setDaemon(true);
+      return t;
+    });
+
+    this.pushedNotifications = Counter.builder("notification.push.notifications").register(meterRegistry);
+    this.pushedFrames = Counter.builder("notification.push.frames").register(meterRegistry);
+    this.droppedNotifications = Counter.builder("notification.push.dropped").register(meterRegistry);
+    Gauge.builder("notification.ws.users", userSessions, Map::size).register(meterRegistry);
+  }
 
   @Override
   public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
@@ -39,12 +96,10 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler{
 
     if (email != null) {
       email = email.toLowerCase();
-      userSessions.put(email, session);
+      userSessions.computeIfAbsent(email, k -> ConcurrentHashMap.newKeySet()).add(session);
 
       System.out.println("WebSocket connected: " + email);
-      sendPreviousNotifications(email);
-
-      System.out.println("Active sessions: " + userSessions.keySet());
+      sendPreviousNotifications(email, session);
     }
     else {
       System.out.println("WebSocket rejected: email missing");
@@ -52,39 +107,46 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler{
     }
   }
 
-  private void sendPreviousNotifications(String email) {
+  // The backlog goes out as one page frame; older pages are requested with the returned cursor.
+  private void sendPreviousNotifications(String email, WebSocketSession session) {
     try {
-      List<Notification> history = notificationRepository.findAllByRecipientWithDetails(email);
-
-      List<NotificationResponseDTO> dtoList = history.stream()
-        .map(notificationMapper::mapToDTO)
-        .toList();
-
-      WebSocketSession session = userSessions.get(email);
-      if (session != null && session.isOpen()) {
-        for (NotificationResponseDTO dto : dtoList) {
-          String json = objectMapper.writeValueAsString(dto);
-          session.sendMessage(new TextMessage(json));
-        }
-      }
-
-      System.out.println("Sent previous notifications to " + email);
-
+      List<Notification> latest = notificationRepository.findLatestByRecipientWithDetails(email,
+        PageRequest.of(0, pageSize + 1));
+      outbound.fanOut(List.of(session), frameEncoder.encode(toPage("SNAPSHOT", latest)));
+    }
+    catch (Exception e) {
+      logger.warn("Failed to send notification snapshot to {}", email, e);
     }
-    catch (Exception ignored) {}
   }
 
-//  @Override
-//  public void handleTextMessage(@NonNull WebSocketSession session, TextMessage message) {
-//    System.out.println("Message from client: " + message.getPayload());
-//  }
+  @Override
+  public void handleTextMessage(@NonNull WebSocketSession session, TextMessage message) {
+    String email = getEmailFromSession(session);
+    if (email == null) return;
+    try {
+      JsonNode request = objectMapper.readTree(message.getPayload());
+      if (!"HISTORY".equalsIgnoreCase(request.path("type").asText())) return;
+
+      LocalDateTime beforeCreatedAt = LocalDateTime.parse(request.path("beforeCreatedAt").asText());
+      UUID beforeId = UUID.fromString(request.path("beforeId").asText());
+      List<Notification> older = notificationRepository.findByRecipientWithDetailsBefore(email.toLowerCase(),
+        beforeCreatedAt, beforeId, PageRequest.of(0, pageSize + 1));
+      outbound.fanOut(List.of(session), frameEncoder.encode(toPage("HISTORY", older)));
+    }
+    catch (Exception e) {
+      logger.warn("Ignoring malformed notification request from {}", email, e);
+    }
+  }
 
   @Override
   public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus status) {
     String email = getEmailFromSession(session);
     if (email != null) {
       email = email.toLowerCase();
-      userSessions.remove(email);
+      userSessions.computeIfPresent(email, (k, sessions) -> {
+        sessions.remove(session);
+        return sessions.isEmpty() ? null : sessions;
+      });
       System.out.println("WebSocket disconnected: " + email);
     }
   }
@@ -104,19 +166,77 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler{
     return null;
   }
 
+  // Pushes within one coalesce window leave as a single frame; a user who falls more than
+  // queueCapacity behind loses the oldest pending pushes, which the next snapshot still covers.
   public void sendNotification(String email, Object notificationData) {
     email = email.toLowerCase();
-    WebSocketSession session = userSessions.get(email);
-
-    if (session != null && session.isOpen()) {
-      try {
-        String json = objectMapper.writeValueAsString(notificationData);
-        session.sendMessage(new TextMessage(json));
-      }
-      catch (IOException e) {
-        System.err.println("Failed to send real-time notification: " + e.getMessage());
+    if (!userSessions.containsKey(email)) return;
+
+    PushQueue queue = pushQueues.computeIfAbsent(email, k -> new PushQueue());
+    boolean schedule;
+    synchronized (queue) {
+      if (queue.pending.size() >= queueCapacity) {
+        queue.pending.pollFirst();
+        droppedNotifications.increment();
       }
+      queue.pending.addLast(notificationData);
+      schedule = !queue.scheduled;
+      queue.scheduled = true;
+    }
+    if (!schedule) return;
+
+    String key = email;
+    try {
+      pushScheduler.schedule(() -> flush(key, queue), coalesceMillis, TimeUnit.MILLISECONDS);
+    }
+    catch (RejectedExecutionException e) {
+      flush(key, queue);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pushScheduler.shutdown();
+  }
+
+  private void flush(String email, PushQueue queue) {
+    List<Object> batch;
+    synchronized (queue) {
+      batch = new ArrayList<>(queue.pending);
+      queue.pending.clear();
+      queue.scheduled = false;
+    }
+    pushQueues.remove(email, queue);
+    if (batch.isEmpty()) return;
+
+    Set<WebSocketSession> sessions = userSessions.get(email);
+    if (sessions == null || sessions.isEmpty()) return;
+    try {
+      Object payload = batch.size() == 1 ? batch.get(0) : new NotificationBatchFrame(batch);
+      outbound.fanOut(sessions, frameEncoder.encode(payload));
+      pushedNotifications.increment(batch.size());
+      pushedFrames.increment();
+    }
+    catch (IOException e) {
+      logger.warn("Failed to send real-time notification", e);
     }
   }
 
+  private NotificationPageFrame toPage(String type, List<Notification> rows) {
+    boolean hasMore = rows.size() > pageSize;
+    List<Notification> page = hasMore ? rows.subList(0, pageSize) : rows;
+    List<NotificationResponseDTO> dtoList = page.stream()
+      .map(notificationMapper::mapToDTO)
+      .toList();
+    Notification oldest = page.isEmpty() ? null : page.get(page.size() - 1);
+    return new NotificationPageFrame(type, dtoList, hasMore,
+      oldest == null ? null : oldest.getCreatedAt(),
+      oldest == null ? null : oldest.getId());
+  }
+
+  private static final class PushQueue {
+    private final Deque<Object> pending = new ArrayDeque<>();
+    private boolean scheduled;
+  }
+
 }
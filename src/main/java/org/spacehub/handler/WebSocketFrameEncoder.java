@@ -0,0 +1,23 @@
+package org.spacehub.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+
+@Component
+public class WebSocketFrameEncoder {
+
+  private final ObjectWriter writer;
+
+  public WebSocketFrameEncoder(ObjectMapper objectMapper) {
+    this.writer = objectMapper.writer();
+  }
+
+  // Encoded once as a String payload: TextMessage(byte[]) would re-decode the bytes on every send.
+  public TextMessage encode(Object payload) throws JsonProcessingException {
+    return new TextMessage(writer.writeValueAsString(payload));
+  }
+
+}
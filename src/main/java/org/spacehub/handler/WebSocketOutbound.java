@@ -0,0 +1,177 @@
+package org.spacehub.handler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class WebSocketOutbound {
+
+  private static final Logger logger = LoggerFactory.getLogger(WebSocketOutbound.class);
+
+  private static final String TOMCAT_BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+  private final int sendTimeLimit;
+  private final int bufferSizeLimit;
+  private final ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
+  private final MeterRegistry meterRegistry;
+  private final ExecutorService[] fanoutWorkers;
+
+  public WebSocketOutbound(@Value("${websocket.outbound.send-time-limit-ms:10000}") int sendTimeLimit,
+                           @Value("${websocket.outbound.buffer-size-limit:524288}") int bufferSizeLimit,
+                           @Value("${websocket.outbound.overflow:TERMINATE}")
+                           ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy,
+                           @Value("${websocket.outbound.fanout-threads:0}") int fanoutThreads,
+                           MeterRegistry meterRegistry) {
+    this.sendTimeLimit = sendTimeLimit;
+    this.bufferSizeLimit = bufferSizeLimit;
+    this.overflowStrategy = overflowStrategy;
+    this.meterRegistry = meterRegistry;
+
+    int count = fanoutThreads > 0 ? fanoutThreads : Runtime.getRuntime().availableProcessors();
+    this.fanoutWorkers = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      String name = "ws-fanout-" + i;
+      fanoutWorkers[i] = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+
+  public WebSocketHandler wrap(WebSocketHandler handler, String name) {
+    Counter slowConsumers = Counter.builder("websocket.slow.consumer.disconnects")
+      .tag("handler", name)
+      .register(meterRegistry);
+    return new OutboundHandlerDecorator(handler, slowConsumers);
+  }
+
+  // Sends to one session are pinned to one worker so each client still sees frames in order.
+  public void fanOut(Collection<WebSocketSession> sessions, WebSocketMessage<?> frame) {
+    for (WebSocketSession session : sessions) {
+      if (session == null || !session.isOpen()) continue;
+      ExecutorService worker = fanoutWorkers[Math.floorMod(session.getId().hashCode(), fanoutWorkers.length)];
+      try {
+        worker.execute(() -> send(session, frame));
+      } catch (RejectedExecutionException e) {
+        send(session, frame);
+      }
+    }
+  }
+
+  private void send(WebSocketSession session, WebSocketMessage<?> frame) {
+    if (!session.isOpen()) return;
+    try {
+      session.sendMessage(frame);
+    } catch (SessionLimitExceededException e) {
+      logger.debug("Dropped slow WebSocket consumer {}: {}", session.getId(), e.getMessage());
+    } catch (IOException | IllegalStateException e) {
+      logger.debug("Failed to send to WebSocket session {}", session.getId(), e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ExecutorService worker : fanoutWorkers) {
+      worker.shutdown();
+    }
+    for (ExecutorService worker : fanoutWorkers) {
+      try {
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private WebSocketSession decorate(WebSocketSession session, Counter slowConsumers) {
+    if (session instanceof NativeWebSocketSession nativeSession
+      && nativeSession.getNativeSession() instanceof jakarta.websocket.Session standard) {
+      standard.getUserProperties().put(TOMCAT_BLOCKING_SEND_TIMEOUT, (long) sendTimeLimit);
+    }
+    return new MeteredSessionDecorator(session, sendTimeLimit, bufferSizeLimit, overflowStrategy, slowConsumers);
+  }
+
+  private static final class MeteredSessionDecorator extends ConcurrentWebSocketSessionDecorator {
+
+    private final Counter slowConsumers;
+
+    private MeteredSessionDecorator(WebSocketSession session, int sendTimeLimit, int bufferSizeLimit,
+                                    OverflowStrategy overflowStrategy, Counter slowConsumers) {
+      super(session, sendTimeLimit, bufferSizeLimit, overflowStrategy);
+      this.slowConsumers = slowConsumers;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+      try {
+        super.sendMessage(message);
+      } catch (SessionLimitExceededException e) {
+        slowConsumers.increment();
+        throw e;
+      }
+    }
+  }
+
+  // Hands every callback the same decorated session, so handler maps keyed by session stay consistent.
+  private final class OutboundHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final Map<String, WebSocketSession> decorated = new ConcurrentHashMap<>();
+    private final Counter slowConsumers;
+
+    private OutboundHandlerDecorator(WebSocketHandler delegate, Counter slowConsumers) {
+      super(delegate);
+      this.slowConsumers = slowConsumers;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+      WebSocketSession outbound = decorate(session, slowConsumers);
+      decorated.put(session.getId(), outbound);
+      super.afterConnectionEstablished(outbound);
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+      super.handleMessage(lookup(session), message);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+      super.handleTransportError(lookup(session), exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+      WebSocketSession outbound = decorated.remove(session.getId());
+      super.afterConnectionClosed(outbound == null ? session : outbound, closeStatus);
+    }
+
+    private WebSocketSession lookup(WebSocketSession session) {
+      return decorated.getOrDefault(session.getId(), session);
+    }
+  }
+
+}
@@ -3,7 +3,10 @@ package org.spacehub.repository.ChatRoom;
 import org.spacehub.entities.ChatRoom.ChatMessage;
 import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,6 +19,42 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>{
 
   List<ChatMessage> findByNewChatRoomOrderByTimestampAsc(NewChatRoom newChatRoom);
 
+  @Query("""
+      SELECT m
+      FROM ChatMessage m
+      WHERE m.newChatRoom = :newChatRoom
+      ORDER BY m.timestamp DESC, m.id DESC
+      """)
+  List<ChatMessage> findLatestByNewChatRoom(@Param("newChatRoom") NewChatRoom newChatRoom, Pageable pageable);
+
+  @Query("""
+      SELECT m
+      FROM ChatMessage m
+      WHERE m.newChatRoom = :newChatRoom
+        AND (m.timestamp < :beforeTimestamp
+             OR (m.timestamp = :beforeTimestamp AND m.id < :beforeId))
+      ORDER BY m.timestamp DESC, m.id DESC
+      """)
+  List<ChatMessage> findByNewChatRoomBefore(@Param("newChatRoom") NewChatRoom newChatRoom,
+                                            @Param("beforeTimestamp") Long beforeTimestamp,
+                                            @Param("beforeId") Long beforeId,
+                                            Pageable pageable);
+
+  // Cursor that ended on a message still pending at the time: same-timestamp rows are ordered by
+  // uuid, as the queue orders pending messages, so the cursor row is excluded once it is flushed.
+  @Query("""
+      SELECT m
+      FROM ChatMessage m
+      WHERE m.newChatRoom = :newChatRoom
+        AND (m.timestamp < :beforeTimestamp
+             OR (m.timestamp = :beforeTimestamp AND m.messageUuid < :beforeUuid))
+      ORDER BY m.timestamp DESC, m.id DESC
+      """)
+  List<ChatMessage> findByNewChatRoomBeforeUuid(@Param("newChatRoom") NewChatRoom newChatRoom,
+                                                @Param("beforeTimestamp") Long beforeTimestamp,
+                                                @Param("beforeUuid") String beforeUuid,
+                                                Pageable pageable);
+
   Optional<ChatMessage> findByMessageUuid(String messageUuid);
 
   void deleteByMessageUuid(String messageUuid);
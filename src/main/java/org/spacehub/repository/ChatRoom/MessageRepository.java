@@ -60,6 +60,15 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
       """)
   long countUnreadMessagesInChat(@Param("userEmail") String userEmail, @Param("chatPartner") String chatPartner);
 
+  @Query("""
+      SELECT m.senderEmail, COUNT(m)
+      FROM Message m
+      WHERE m.receiverEmail = :receiverEmail
+        AND m.readStatus = false
+      GROUP BY m.senderEmail
+      """)
+  List<Object[]> countUnreadBySender(@Param("receiverEmail") String receiverEmail);
+
   @Modifying
   @Query("""
       UPDATE Message m
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -46,6 +47,20 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
   @Query("DELETE FROM Notification n WHERE n.expiresAt < CURRENT_TIMESTAMP")
   void deleteExpired();
 
+  @Modifying
+  @Transactional
+  @Query(value = """
+           DELETE FROM notifications
+           WHERE id IN (
+             SELECT id FROM notifications
+             WHERE expires_at < :cutoff
+             ORDER BY expires_at
+             LIMIT :limit
+             FOR UPDATE SKIP LOCKED
+           )
+           """, nativeQuery = true)
+  int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
   @Query("""
            SELECT n FROM Notification n
            LEFT JOIN FETCH n.sender
@@ -55,6 +70,66 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
            """)
   List<Notification> findAllByRecipientWithDetails(@Param("email") String email);
 
+  @Query("""
+           SELECT n FROM Notification n
+           LEFT JOIN FETCH n.sender
+           LEFT JOIN FETCH n.community
+           WHERE n.recipient.email = :email
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+  List<Notification> findLatestByRecipientWithDetails(@Param("email") String email, Pageable pageable);
+
+  @Query("""
+           SELECT n FROM Notification n
+           LEFT JOIN FETCH n.sender
+           LEFT JOIN FETCH n.community
+           WHERE n.recipient.email = :email
+             AND (n.createdAt < :beforeCreatedAt OR (n.createdAt = :beforeCreatedAt AND n.id < :beforeId))
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+  List<Notification> findByRecipientWithDetailsBefore(@Param("email") String email,
+                                                      @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                      @Param("beforeId") UUID beforeId,
+                                                      Pageable pageable);
+
+  @Query("""
+           SELECT n FROM Notification n
+           LEFT JOIN FETCH n.sender
+           LEFT JOIN FETCH n.community
+           WHERE n.recipient.email = :email
+             AND LOWER(n.scope) = LOWER(:scope)
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+  List<Notification> findLatestByRecipientAndScopeWithDetails(@Param("email") String email,
+                                                              @Param("scope") String scope,
+                                                              Pageable pageable);
+
+  @Query("""
+           SELECT n FROM Notification n
+           LEFT JOIN FETCH n.sender
+           LEFT JOIN FETCH n.community
+           WHERE n.recipient.email = :email
+             AND LOWER(n.scope) = LOWER(:scope)
+             AND (n.createdAt < :beforeCreatedAt OR (n.createdAt = :beforeCreatedAt AND n.id < :beforeId))
+           ORDER BY n.createdAt DESC, n.id DESC
+           """)
+  List<Notification> findByRecipientAndScopeWithDetailsBefore(@Param("email") String email,
+                                                              @Param("scope") String scope,
+                                                              @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                                              @Param("beforeId") UUID beforeId,
+                                                              Pageable pageable);
+
+  long countByRecipientEmailAndReadFalse(String email);
+
+  @Modifying(clearAutomatically = true, flushAutomatically = true)
+  @Query("""
+           UPDATE Notification n SET n.read = true
+           WHERE n.read = false
+             AND n.actionable = false
+             AND n.recipient.id IN (SELECT u.id FROM User u WHERE u.email = :email)
+           """)
+  int markAllReadForRecipient(@Param("email") String email);
+
   @Modifying
   @Query("DELETE FROM Notification n WHERE n.referenceId = :ref AND n.actionable = true")
   void deleteActionableByReference(@Param("ref") UUID referenceId);
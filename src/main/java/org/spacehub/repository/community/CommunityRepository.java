@@ -1,14 +1,18 @@
 package org.spacehub.repository.community;
 
 import io.lettuce.core.dynamic.annotation.Param;
+import org.spacehub.DTO.Community.CommunityListItem;
 import org.spacehub.entities.Community.Community;
 import org.spacehub.entities.User.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -33,6 +37,12 @@ public interface CommunityRepository extends JpaRepository<Community, UUID> {
   @Query("SELECT c FROM Community c JOIN c.pendingRequests p WHERE p = :user")
   List<Community> findAllWithPendingUser(@Param("user") User user);
 
+  @Query("SELECT c.id FROM Community c JOIN c.members u WHERE u.id = :userId AND c.id IN :ids")
+  List<UUID> findIdsWithMember(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids);
+
+  @Query("SELECT c.id FROM Community c JOIN c.pendingRequests p WHERE p.id = :userId AND c.id IN :ids")
+  List<UUID> findIdsWithPendingUser(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids);
+
   @Query("SELECT c FROM Community c LEFT JOIN FETCH c.communityUsers WHERE c.communityId = :communityId")
   java.util.Optional<Community> findByCommunityCode(@Param("communityId") java.util.UUID communityId);
 
@@ -54,4 +64,54 @@ public interface CommunityRepository extends JpaRepository<Community, UUID> {
     """)
   Optional<Community> findByNameWithUsers(@Param("name") String name);
 
+  @Query("""
+        SELECT new org.spacehub.DTO.Community.CommunityListItem(
+          c.id, c.name, c.description, c.imageUrl, c.bannerUrl, creator.id, my.role, c.activeMemberCount)
+        FROM Community c
+        LEFT JOIN c.createdBy creator
+        LEFT JOIN CommunityUser my ON my.community = c AND my.user.id = :userId
+        WHERE creator.id = :userId OR my.id IS NOT NULL
+    """)
+  List<CommunityListItem> findCommunityListForUser(@Param("userId") UUID userId);
+
+  @Modifying
+  @Transactional
+  @Query(value = """
+        UPDATE community
+        SET active_member_count = GREATEST(active_member_count + :activeDelta, 0),
+            admin_count = GREATEST(admin_count + :adminDelta, 0),
+            pending_request_count = GREATEST(pending_request_count + :pendingDelta, 0)
+        WHERE id = :id
+    """, nativeQuery = true)
+  int adjustMemberCounts(@Param("id") UUID id, @Param("activeDelta") long activeDelta,
+                         @Param("adminDelta") long adminDelta, @Param("pendingDelta") long pendingDelta);
+
+  @Query("SELECT c.id FROM Community c WHERE c.id > :after ORDER BY c.id")
+  List<UUID> findIdsAfter(@Param("after") UUID after, Pageable pageable);
+
+  @Modifying
+  @Transactional
+  @Query(value = """
+        UPDATE community c
+        SET active_member_count = x.active, admin_count = x.admins, pending_request_count = x.pending
+        FROM (
+          SELECT c2.id,
+            (SELECT COUNT(DISTINCT cu.user_id) FROM community_user cu
+             WHERE cu.community_id = c2.community_id AND cu.role IN (:memberRoles)
+               AND cu.is_banned = false AND cu.is_blocked = false) AS active,
+            (SELECT COUNT(DISTINCT cu.user_id) FROM community_user cu
+             WHERE cu.community_id = c2.community_id AND cu.role IN (:adminRoles)
+               AND cu.is_banned = false AND cu.is_blocked = false) AS admins,
+            (SELECT COUNT(*) FROM community_pending_requests p WHERE p.community_id = c2.id) AS pending
+          FROM community c2
+          WHERE c2.id IN (:ids)
+        ) x
+        WHERE c.id = x.id
+          AND (c.active_member_count, c.admin_count, c.pending_request_count)
+              IS DISTINCT FROM (x.active, x.admins, x.pending)
+    """, nativeQuery = true)
+  int repairMemberCounts(@Param("ids") Collection<UUID> ids,
+                         @Param("memberRoles") Collection<String> memberRoles,
+                         @Param("adminRoles") Collection<String> adminRoles);
+
 }
@@ -7,6 +7,7 @@ import org.spacehub.entities.User.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -23,4 +24,6 @@ public interface CommunityUserRepository extends JpaRepository<CommunityUser, UU
 
   Optional<CommunityUser> findByCommunityAndUser(Community community, User user);
 
+  List<CommunityUser> findByUserIdAndCommunityIdIn(UUID userId, Collection<UUID> communityIds);
+
 }
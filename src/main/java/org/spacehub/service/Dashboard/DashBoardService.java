@@ -7,6 +7,8 @@ import org.spacehub.repository.User.UserRepository;
 import org.spacehub.security.EmailValidator;
 import org.spacehub.service.Interface.IDashBoardService;
 import org.spacehub.service.File.S3Service;
+import org.spacehub.service.Profile.UserProfileCache;
+import org.spacehub.service.serviceAuth.UserSnapshotCache;
 import org.spacehub.utils.ImageValidator;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -34,6 +36,8 @@ public class DashBoardService implements IDashBoardService {
   private final S3Service s3Service;
   private final PasswordEncoder passwordEncoder;
   private final EmailValidator emailValidator;
+  private final UserProfileCache userProfileCache;
+  private final UserSnapshotCache userSnapshotCache;
 
   public ApiResponse<String> saveUsername(String username) {
 
@@ -55,6 +59,8 @@ public class DashBoardService implements IDashBoardService {
 
       user.setUsername(username);
       userRepository.save(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(email);
 
       return new ApiResponse<>(HttpStatus.OK.value(),
         "Username updated successfully", username);
@@ -112,6 +118,8 @@ public class DashBoardService implements IDashBoardService {
 
       user.setAvatarUrl(key);
       userRepository.save(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(email);
 
       String previewUrl = generatePreviewUrlSafely(key);
 
@@ -235,6 +243,9 @@ public class DashBoardService implements IDashBoardService {
       }
 
       userRepository.save(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(email);
+      userProfileCache.invalidate(user.getEmail());
       addPresignedPreviewIfMissing(user, result);
 
       return ApiResponse.success(200, "Profile updated successfully", result);
@@ -280,6 +291,7 @@ public class DashBoardService implements IDashBoardService {
       return new ApiResponse<>(409, "New email already in use", null);
     }
 
+    userSnapshotCache.invalidate(user.getEmail());
     user.setEmail(normalizedNewEmail);
     result.put("email", normalizedNewEmail);
     return null;
@@ -306,6 +318,7 @@ public class DashBoardService implements IDashBoardService {
     user.setPassword(passwordEncoder.encode(newPassword));
     int pv = Objects.requireNonNullElse(user.getPasswordVersion(), 0);
     user.setPasswordVersion(pv + 1);
+    userSnapshotCache.invalidate(user.getEmail());
     result.put("passwordChanged", true);
     return null;
   }
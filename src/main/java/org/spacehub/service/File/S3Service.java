@@ -1,9 +1,16 @@
 package org.spacehub.service.File;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.spacehub.service.Interface.IS3Service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.awscore.presigner.PresignedRequest;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
@@ -13,18 +20,66 @@ import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignReques
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import java.io.InputStream;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 public class S3Service implements IS3Service {
 
+  private enum Operation { GET, PUT }
+
+  private record PresignKey(String key, Operation operation) {}
+
+  private record PresignedUrl(String url, Duration duration, Instant signedAt, Instant expiresAt) {}
+
   private final S3Client s3Client;
   private final S3Presigner s3Presigner;
+  private final Cache<PresignKey, PresignedUrl> presignCache;
+  private final double reuseFraction;
+
+  private final Counter cacheHits;
+  private final Counter cacheMisses;
+  private final Timer signTimer;
 
   @Value("${aws.s3.bucket}")
   private String bucketName;
 
+  public S3Service(S3Client s3Client,
+                   S3Presigner s3Presigner,
+                   @Value("${aws.s3.presign-cache.max-size:50000}") long maxSize,
+                   @Value("${aws.s3.presign-cache.reuse-fraction:0.5}") double reuseFraction,
+                   MeterRegistry meterRegistry) {
+    this.s3Client = s3Client;
+    this.s3Presigner = s3Presigner;
+    this.reuseFraction = Math.min(0.9, Math.max(0.0, reuseFraction));
+    this.presignCache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfter(new Expiry<PresignKey, PresignedUrl>() {
+        @Override
+        public long expireAfterCreate(PresignKey key, PresignedUrl value, long currentTime) {
+          return reuseWindow(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(PresignKey key, PresignedUrl value, long currentTime, long currentDuration) {
+          return reuseWindow(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(PresignKey key, PresignedUrl value, long currentTime, long currentDuration) {
+          return currentDuration;
+        }
+      })
+      .build();
+
+    this.cacheHits = Counter.builder("s3.presign.cache").tag("result", "hit").register(meterRegistry);
+    this.cacheMisses = Counter.builder("s3.presign.cache").tag("result", "miss").register(meterRegistry);
+    this.signTimer = Timer.builder("s3.presign.sign").register(meterRegistry);
+    Gauge.builder("s3.presign.cache.size", presignCache, Cache::estimatedSize).register(meterRegistry);
+    Gauge.builder("s3.presign.cache.hit.ratio", this, S3Service::hitRatio).register(meterRegistry);
+  }
+
   public void uploadFile(String key, InputStream inputStream, long contentLength) {
     PutObjectRequest request = PutObjectRequest.builder()
             .bucket(bucketName)
@@ -39,6 +94,8 @@ public class S3Service implements IS3Service {
             .key(key)
             .build();
     s3Client.deleteObject(request);
+    presignCache.invalidate(new PresignKey(key, Operation.GET));
+    presignCache.invalidate(new PresignKey(key, Operation.PUT));
   }
 
   public String generatePresignedUploadUrl(String key, Duration duration) {
@@ -52,7 +109,7 @@ public class S3Service implements IS3Service {
             .putObjectRequest(request)
             .build();
 
-    return s3Presigner.presignPutObject(presignRequest).url().toString();
+    return presign(key, Operation.PUT, duration, () -> s3Presigner.presignPutObject(presignRequest));
   }
 
   public String generatePresignedDownloadUrl(String key, Duration duration) {
@@ -61,7 +118,41 @@ public class S3Service implements IS3Service {
             .signatureDuration(duration)
             .build();
 
-    return s3Presigner.presignGetObject(presignRequest).url().toString();
+    return presign(key, Operation.GET, duration, () -> s3Presigner.presignGetObject(presignRequest));
+  }
+
+  // A signed URL is handed out again until reuse-fraction of its lifetime has passed, as long as it was
+  // signed for at least the duration now being asked for. Repeated listings then return identical URLs,
+  // which browsers can cache, instead of paying for a fresh SigV4 signature per item.
+  private String presign(String key, Operation operation, Duration duration,
+                         Supplier<? extends PresignedRequest> signer) {
+    PresignKey cacheKey = new PresignKey(key, operation);
+    PresignedUrl cached = presignCache.getIfPresent(cacheKey);
+    if (cached != null && cached.duration().compareTo(duration) >= 0
+      && Instant.now().isBefore(cached.signedAt().plus(reuseWindow(cached)))) {
+      cacheHits.increment();
+      return cached.url();
+    }
+
+    cacheMisses.increment();
+    Instant signedAt = Instant.now();
+    PresignedRequest presigned = signTimer.record(signer::get);
+    PresignedUrl url = new PresignedUrl(presigned.url().toString(), duration, signedAt, presigned.expiration());
+    if (reuseFraction > 0) {
+      presignCache.put(cacheKey, url);
+    }
+    return url.url();
+  }
+
+  private Duration reuseWindow(PresignedUrl url) {
+    long lifetimeMillis = Duration.between(url.signedAt(), url.expiresAt()).toMillis();
+    return Duration.ofMillis(Math.max(0, (long) (lifetimeMillis * reuseFraction)));
+  }
+
+  private double hitRatio() {
+    double hits = cacheHits.count();
+    double total = hits + cacheMisses.count();
+    return total == 0 ? 0.0 : hits / total;
   }
 
   public String generateFileKey(String originalFilename) {
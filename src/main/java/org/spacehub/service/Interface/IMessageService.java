@@ -3,6 +3,7 @@ package org.spacehub.service.Interface;
 import org.spacehub.entities.DirectMessaging.Message;
 import org.springframework.http.ResponseEntity;
 import java.util.List;
+import java.util.Map;
 
 public interface IMessageService {
 
@@ -40,6 +41,8 @@ public interface IMessageService {
 
   long countUnreadMessages(String receiverEmail);
 
+  Map<String, Long> countUnreadMessagesByPartner(String userEmail);
+
   long countUnreadMessagesInChat(String userEmail, String chatPartner);
 
   boolean deleteMessageByUuid(String messageUuid);
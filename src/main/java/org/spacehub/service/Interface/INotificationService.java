@@ -2,8 +2,10 @@ package org.spacehub.service.Interface;
 
 import org.spacehub.DTO.Notification.NotificationRequestDTO;
 import org.spacehub.DTO.Notification.NotificationResponseDTO;
+import org.spacehub.DTO.Notification.NotificationUserRequest;
 import org.spacehub.entities.User.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,9 +13,11 @@ public interface INotificationService {
 
   void createNotification(NotificationRequestDTO request);
 
-  List<NotificationResponseDTO> getUserNotifications(String scope, int page, int size);
+  void createNotificationForAll(NotificationRequestDTO template, Collection<String> recipientEmails);
 
-  List<NotificationResponseDTO> fetchAndMarkRead(int page, int size);
+  List<NotificationResponseDTO> getUserNotifications(NotificationUserRequest request);
+
+  List<NotificationResponseDTO> fetchAndMarkRead(NotificationUserRequest request);
 
   void markAsRead(UUID id);
 
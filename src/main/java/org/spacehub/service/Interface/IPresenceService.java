@@ -1,5 +1,7 @@
 package org.spacehub.service.Interface;
 
+import org.spacehub.DTO.presence.OnlineUsersDTO;
+
 public interface IPresenceService {
 
   void userConnected(String sessionId, Long communityId, String email);
@@ -8,5 +10,6 @@ public interface IPresenceService {
 
   void userLeft(String sessionId);
 
-}
+  OnlineUsersDTO getOnlineUsers(Long communityId, String cursor, Integer limit);
 
+}
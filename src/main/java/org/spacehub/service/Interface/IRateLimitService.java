@@ -4,4 +4,6 @@ public interface IRateLimitService {
 
   boolean tryConsume(String key);
 
+  boolean tryConsume(String path, String identity);
+
 }
@@ -1,25 +1,106 @@
 package org.spacehub.service.Message;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spacehub.entities.DirectMessaging.Message;
 import org.spacehub.handler.ChatWebSocketHandlerMessaging;
 import org.spacehub.service.Interface.IMessageService;
+import org.spacehub.service.journal.WriteAheadJournal;
+import org.spacehub.service.queue.FlushPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Service
-@RequiredArgsConstructor
 public class MessageQueueService {
 
-  private final Map<String, List<Message>> pendingByChat = new ConcurrentHashMap<>();
+  private static final Logger logger = LoggerFactory.getLogger(MessageQueueService.class);
+
+  private final Map<String, ChatBuffer> pendingByChat = new ConcurrentHashMap<>();
+  private final Map<String, Message> pendingByUuid = new ConcurrentHashMap<>();
   private final IMessageService messageService;
+  private final MeterRegistry meterRegistry;
+  private final WriteAheadJournal journal;
+  private final WriteAheadJournal deadLetters;
+  private final ObjectMapper objectMapper;
+  private final FlushPolicy flushPolicy;
+  private final int maxAttempts;
+  private Counter deadLettered;
   private ChatWebSocketHandlerMessaging messagingHandler;
-  private static final int FLUSH_BATCH_SIZE = 10;
+  private static final int MESSAGE_OVERHEAD_BYTES = 160;
+
+  public MessageQueueService(IMessageService messageService,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("directMessageJournal") WriteAheadJournal journal,
+                             @Qualifier("directMessageDeadLetterJournal") WriteAheadJournal deadLetters,
+                             ObjectMapper objectMapper,
+                             @Qualifier("directMessageFlushPolicy") FlushPolicy flushPolicy,
+                             @Value("${dm.queue.flush.max-attempts:5}") int maxAttempts) {
+    this.messageService = messageService;
+    this.meterRegistry = meterRegistry;
+    this.journal = journal;
+    this.deadLetters = deadLetters;
+    this.objectMapper = objectMapper;
+    this.flushPolicy = flushPolicy;
+    this.maxAttempts = Math.max(1, maxAttempts);
+  }
+
+  @PostConstruct
+  public void registerMetrics() {
+    Gauge.builder("dm.queue.pending", pendingByUuid, Map::size).register(meterRegistry);
+    Gauge.builder("dm.journal.live", journal, WriteAheadJournal::liveEntries).register(meterRegistry);
+    deadLettered = Counter.builder("dm.queue.dead.lettered").register(meterRegistry);
+    Gauge.builder("dm.queue.oldest.age", this, MessageQueueService::oldestPendingAgeMillis)
+      .baseUnit("milliseconds")
+      .register(meterRegistry);
+  }
+
+  @PostConstruct
+  public synchronized void recoverJournal() {
+    int parked = deadLetters.recover().size();
+    if (parked > 0) logger.warn("{} dead-lettered direct messages are waiting for review", parked);
+
+    List<Message> recovered = new ArrayList<>();
+    for (byte[] payload : journal.recover()) {
+      try {
+        recovered.add(objectMapper.readValue(payload, Message.class));
+      }
+      catch (Exception e) {
+        logger.error("Unable to read journaled direct message", e);
+      }
+    }
+    recovered.sort(Comparator.comparing(Message::getTimestamp, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    for (Message message : recovered) {
+      try {
+        if (messageService.getMessageByUuid(message.getMessageUuid()) != null) {
+          journal.complete(message.getMessageUuid());
+          continue;
+        }
+        message.setId(null);
+        buffer(message);
+      }
+      catch (Exception e) {
+        logger.error("Unable to replay journaled direct message", e);
+      }
+    }
+  }
 
   @Autowired
   @Lazy
@@ -28,54 +109,145 @@ public class MessageQueueService {
   }
 
   public synchronized void enqueue(Message message) {
+    if (message.getMessageUuid() == null) message.setMessageUuid(UUID.randomUUID().toString());
     if (message.getTimestamp() == null) message.setTimestamp(java.time.Instant.now().toEpochMilli());
     if (message.getSenderEmail() != null) message.setSenderEmail(message.getSenderEmail().trim().toLowerCase());
     if (message.getReceiverEmail() != null) message.setReceiverEmail(message.getReceiverEmail().trim().toLowerCase());
+    try {
+      journal.append(message.getMessageUuid(), objectMapper.writeValueAsBytes(message));
+    }
+    catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to journal direct message " + message.getMessageUuid(), e);
+    }
+    buffer(message);
+  }
+
+  private void buffer(Message message) {
     String chatKey = buildChatKey(message.getSenderEmail(), message.getReceiverEmail());
-    pendingByChat.computeIfAbsent(chatKey, k -> Collections.synchronizedList(new ArrayList<>())).add(message);
-    List<Message> list = pendingByChat.get(chatKey);
-    if (list != null && list.size() >= FLUSH_BATCH_SIZE) flushRoom(chatKey);
+    ChatBuffer buffer = pendingByChat.computeIfAbsent(chatKey, k -> new ChatBuffer());
+    buffer.add(message);
+    pendingByUuid.put(message.getMessageUuid(), message);
+    if (buffer.isDue(System.currentTimeMillis())) flushRoom(chatKey);
   }
 
-  @Scheduled(fixedRate = 5000)
+  @Scheduled(fixedDelayString = "${dm.queue.flush.tick-ms:200}")
   public synchronized void flushQueue() {
+    long now = System.currentTimeMillis();
+    Set<String> chats = new HashSet<>(pendingByChat.keySet());
+    for (String chatKey : chats) {
+      ChatBuffer buffer = pendingByChat.get(chatKey);
+      if (buffer != null && buffer.isDue(now)) flushRoom(chatKey);
+    }
+  }
+
+  @PreDestroy
+  public synchronized void shutdown() {
     Set<String> chats = new HashSet<>(pendingByChat.keySet());
     for (String chatKey : chats) flushRoom(chatKey);
   }
 
   private synchronized void flushRoom(String chatKey) {
-    List<Message> pending = pendingByChat.getOrDefault(chatKey, Collections.emptyList());
-    if (pending.isEmpty()) return;
-    List<Message> batch = new ArrayList<>(pending);
-    pending.clear();
-    pendingByChat.remove(chatKey);
+    ChatBuffer pending = pendingByChat.get(chatKey);
+    if (pending == null || pending.messages.isEmpty()) return;
+    List<Message> batch = pending.take(flushPolicy.maxBatchSize());
+    if (pending.messages.isEmpty()) pendingByChat.remove(chatKey);
+
+    long batchBytes = 0;
+    for (Message m : batch) batchBytes += estimateBytes(m);
+    long started = System.nanoTime();
     try {
       List<Message> persisted = messageService.saveMessageBatch(batch);
+      flushPolicy.recordFlush(batch.size(), batchBytes, System.nanoTime() - started, true);
+      pending.persisted(batch);
+      for (Message m : batch) pendingByUuid.remove(m.getMessageUuid(), m);
+      for (Message m : batch) journal.complete(m.getMessageUuid());
       if (messagingHandler != null && persisted != null) {
         for (Message persistedMessage : persisted) {
           try { messagingHandler.confirmAndBroadcast(persistedMessage); } catch (Exception ignored) {}
         }
       }
     } catch (Exception e) {
-      e.printStackTrace();
-      pendingByChat.computeIfAbsent(chatKey, k -> Collections.synchronizedList(new ArrayList<>())).addAll(batch);
+      flushPolicy.recordFlush(batch.size(), batchBytes, System.nanoTime() - started, false);
+      ChatBuffer buffer = pendingByChat.computeIfAbsent(chatKey, k -> pending);
+      if (batch.size() == 1 && countsAsAttempt(e) && buffer.recordAttempt(batch.get(0)) >= maxAttempts
+              && deadLetter(buffer, batch.get(0), e)) {
+        return;
+      }
+      logger.warn("Failed to persist {} direct messages, re-queueing", batch.size(), e);
+      buffer.restore(batch);
+    }
+  }
+
+  // Same policy as the chat room queue: a row that keeps failing on its own is parked in the dead-letter
+  // journal instead of blocking the conversation and being replayed on every restart.
+  private boolean deadLetter(ChatBuffer buffer, Message message, Exception cause) {
+    String messageUuid = message.getMessageUuid();
+    try {
+      deadLetters.append(messageUuid, objectMapper.writeValueAsBytes(message));
+    }
+    catch (Exception e) {
+      logger.error("Unable to dead-letter direct message {}", messageUuid, e);
+      return false;
     }
+    logger.error("Dead-lettered direct message {} after {} failed attempts", messageUuid, maxAttempts, cause);
+    deadLettered.increment();
+    buffer.attempts.remove(messageUuid);
+    pendingByUuid.remove(messageUuid, message);
+    journal.complete(messageUuid);
+    return true;
+  }
+
+  private static boolean countsAsAttempt(Exception e) {
+    return !(e instanceof TransientDataAccessException
+            || e instanceof DataAccessResourceFailureException
+            || e instanceof CannotCreateTransactionException);
+  }
+
+  private long oldestPendingAgeMillis() {
+    long now = System.currentTimeMillis();
+    long oldest = 0;
+    for (ChatBuffer buffer : pendingByChat.values()) {
+      long first = buffer.firstPendingAt;
+      if (first != 0 && !buffer.messages.isEmpty()) oldest = Math.max(oldest, now - first);
+    }
+    return oldest;
+  }
+
+  private static long estimateBytes(Message m) {
+    return MESSAGE_OVERHEAD_BYTES + 2L * (length(m.getContent()) + length(m.getFileKey())
+      + length(m.getFileName()) + length(m.getContentType()) + length(m.getSenderEmail())
+      + length(m.getReceiverEmail()));
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
   }
 
   public synchronized boolean deleteMessageByUuid(String messageUuid) {
-    boolean removedFromMemory = pendingByChat.values().stream().anyMatch(list -> list.removeIf(m -> Objects.equals(m.getMessageUuid(), messageUuid)));
+    boolean removedFromMemory = false;
+    Message pending = pendingByUuid.remove(messageUuid);
+    if (pending != null) {
+      ChatBuffer buffer = pendingByChat.get(buildChatKey(pending.getSenderEmail(), pending.getReceiverEmail()));
+      removedFromMemory = buffer != null && buffer.remove(messageUuid);
+      if (removedFromMemory) journal.complete(messageUuid);
+    }
     boolean removedFromDb = messageService.deleteMessageByUuid(messageUuid);
     return removedFromMemory || removedFromDb;
   }
 
   public List<Message> getPendingForChat(String userA, String userB) {
     String chatKey = buildChatKey(userA, userB);
-    List<Message> pending = pendingByChat.getOrDefault(chatKey, Collections.emptyList());
-    return new ArrayList<>(pending);
+    ChatBuffer pending = pendingByChat.get(chatKey);
+    return pending == null ? new ArrayList<>() : new ArrayList<>(pending.messages);
   }
 
   public boolean isPending(String messageUuid) {
-    return pendingByChat.values().stream().flatMap(Collection::stream).anyMatch(m -> Objects.equals(m.getMessageUuid(), messageUuid));
+    return messageUuid != null && pendingByUuid.containsKey(messageUuid);
+  }
+
+  public int getPendingDepth(String userA, String userB) {
+    ChatBuffer pending = pendingByChat.get(buildChatKey(userA, userB));
+    return pending == null ? 0 : pending.messages.size();
   }
 
   public String buildChatKey(String a, String b) {
@@ -85,4 +257,69 @@ public class MessageQueueService {
     return bb + "::" + aa;
   }
 
+  private final class ChatBuffer {
+    private final List<Message> messages = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private long bytes;
+    private volatile long firstPendingAt;
+    private int batchLimit = Integer.MAX_VALUE;
+
+    void add(Message message) {
+      messages.add(message);
+      bytes += estimateBytes(message);
+      if (firstPendingAt == 0) firstPendingAt = System.currentTimeMillis();
+    }
+
+    // Failed batches go back to the head and the next takes shrink until the failing row is flushed alone.
+    void restore(List<Message> batch) {
+      messages.addAll(0, batch);
+      for (Message m : batch) bytes += estimateBytes(m);
+      if (firstPendingAt == 0) firstPendingAt = System.currentTimeMillis();
+      batchLimit = Math.max(1, batch.size() / 2);
+    }
+
+    void persisted(List<Message> batch) {
+      for (Message m : batch) attempts.remove(m.getMessageUuid());
+      if (batchLimit < Integer.MAX_VALUE) batchLimit = (int) Math.min(Integer.MAX_VALUE, 2L * batchLimit);
+    }
+
+    int recordAttempt(Message message) {
+      return attempts.merge(message.getMessageUuid(), 1, Integer::sum);
+    }
+
+    List<Message> take(int max) {
+      List<Message> batch;
+      synchronized (messages) {
+        List<Message> head = messages.subList(0, Math.min(Math.min(max, batchLimit), messages.size()));
+        batch = new ArrayList<>(head);
+        head.clear();
+      }
+      for (Message m : batch) bytes -= estimateBytes(m);
+      firstPendingAt = messages.isEmpty() ? 0 : System.currentTimeMillis();
+      return batch;
+    }
+
+    boolean remove(String messageUuid) {
+      synchronized (messages) {
+        Iterator<Message> it = messages.iterator();
+        while (it.hasNext()) {
+          Message m = it.next();
+          if (Objects.equals(m.getMessageUuid(), messageUuid)) {
+            it.remove();
+            attempts.remove(messageUuid);
+            bytes -= estimateBytes(m);
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    boolean isDue(long now) {
+      if (messages.isEmpty()) return false;
+      long age = firstPendingAt == 0 ? 0 : now - firstPendingAt;
+      return flushPolicy.shouldFlush(messages.size(), bytes, age);
+    }
+  }
+
 }
@@ -4,12 +4,14 @@ import lombok.RequiredArgsConstructor;
 import org.spacehub.entities.DirectMessaging.Message;
 import org.spacehub.repository.ChatRoom.MessageRepository;
 import org.spacehub.service.Interface.IMessageService;
+import org.spacehub.service.Notification.UnreadCounterService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.spacehub.utils.SecurityUtils;
 
@@ -18,6 +20,7 @@ import org.spacehub.utils.SecurityUtils;
 public class MessageService implements IMessageService {
 
   private final MessageRepository repo;
+  private final UnreadCounterService unreadCounters;
 
   @Override
   public void saveMessage(Message message) {
@@ -29,6 +32,7 @@ public class MessageService implements IMessageService {
   public List<Message> saveMessageBatch(List<Message> messages) {
     List<Message> saved = repo.saveAll(messages);
     repo.flush();
+    unreadCounters.directMessagesPersisted(saved);
     return saved;
   }
 
@@ -125,6 +129,7 @@ public class MessageService implements IMessageService {
     if (!Boolean.TRUE.equals(mess.getReadStatus())) {
       mess.setReadStatus(true);
       repo.save(mess);
+      unreadCounters.directMessageRead(mess.getReceiverEmail(), mess.getSenderEmail());
     }
     return mess;
   }
@@ -137,22 +142,29 @@ public class MessageService implements IMessageService {
     if (!Boolean.TRUE.equals(mess.getReadStatus())) {
       mess.setReadStatus(true);
       repo.save(mess);
+      unreadCounters.directMessageRead(mess.getReceiverEmail(), mess.getSenderEmail());
     }
   }
 
   @Override
   public void markAllAsRead(String receiverEmail, String senderEmail) {
     repo.markAllAsReadBetweenUsers(receiverEmail, senderEmail);
+    unreadCounters.directChatRead(receiverEmail, senderEmail);
   }
 
   @Override
   public long countUnreadMessages(String receiverEmail) {
-    return repo.countUnreadMessages(receiverEmail);
+    return unreadCounters.unreadDirectMessages(receiverEmail);
+  }
+
+  @Override
+  public Map<String, Long> countUnreadMessagesByPartner(String userEmail) {
+    return unreadCounters.unreadDirectMessagesByPartner(userEmail);
   }
 
   @Override
   public long countUnreadMessagesInChat(String userEmail, String chatPartner) {
-    return repo.countUnreadMessagesInChat(userEmail, chatPartner);
+    return unreadCounters.unreadDirectMessagesInChat(userEmail, chatPartner);
   }
 
   @Override
@@ -1,22 +1,183 @@
 package org.spacehub.service.Notification;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spacehub.repository.Notification.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
-@RequiredArgsConstructor
 public class NotificationCleanupScheduler {
 
+  private static final Logger logger = LoggerFactory.getLogger(NotificationCleanupScheduler.class);
+
+  private static final String PARTITION_PREFIX = "notifications_p";
+  private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
   private final NotificationRepository notificationRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final String mode;
+  private final int batchSize;
+  private final int maxBatchesPerRun;
+  private final long pauseMillis;
+  private final int partitionsAhead;
+  private final ExecutorService executor;
+  private final AtomicBoolean running = new AtomicBoolean();
+
+  private final Counter purgedRows;
+  private final Counter droppedPartitions;
+  private final Timer runTimer;
+
+  public NotificationCleanupScheduler(NotificationRepository notificationRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      @Value("${notification.expiry.mode:delete}") String mode,
+                                      @Value("${notification.expiry.batch-size:1000}") int batchSize,
+                                      @Value("${notification.expiry.max-batches-per-run:50}") int maxBatchesPerRun,
+                                      @Value("${notification.expiry.pause-ms:200}") long pauseMillis,
+                                      @Value("${notification.expiry.partitions-ahead:2}") int partitionsAhead,
+                                      MeterRegistry meterRegistry) {
+    this.notificationRepository = notificationRepository;
+    this.jdbcTemplate = jdbcTemplate;
+    this.mode = mode;
+    this.batchSize = Math.max(1, batchSize);
+    this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    this.pauseMillis = Math.max(0, pauseMillis);
+    this.partitionsAhead = Math.max(1, partitionsAhead);
+    this.executor = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "notification-expiry");
+      t.setDaemon(true);
+      return t;
+    });
 
-  @Scheduled(cron = "0 0 0 30 * *")
-  @Transactional
+    this.purgedRows = Counter.builder("notification.expiry.purged").register(meterRegistry);
+    this.droppedPartitions = Counter.builder("notification.expiry.partitions.dropped").register(meterRegistry);
+    this.runTimer = Timer.builder("notification.expiry.run").register(meterRegistry);
+  }
+
+  // The purge pauses between batches, so it runs on its own thread instead of holding the shared
+  // scheduler; a tick that finds the previous run still going is skipped.
+  @Scheduled(fixedDelayString = "${notification.expiry.interval-ms:60000}",
+             initialDelayString = "${notification.expiry.interval-ms:60000}")
   public void cleanupOldNotifications() {
-    notificationRepository.deleteExpired();
-    System.out.println("Old notifications cleaned up.");
+    if (!running.compareAndSet(false, true)) return;
+    try {
+      executor.execute(() -> {
+        try {
+          runTimer.record(this::runCleanup);
+        }
+        finally {
+          running.set(false);
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      running.set(false);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private void runCleanup() {
+    if ("partition".equalsIgnoreCase(mode) && isPartitioned()) {
+      rotatePartitions();
+    }
+    else {
+      purgeInBatches();
+    }
+  }
+
+  // Each batch is its own short transaction on the expires_at index; the pause keeps the purge from
+  // competing with live traffic, and whatever is left over is picked up by the next run.
+  private void purgeInBatches() {
+    LocalDateTime cutoff = LocalDateTime.now();
+    long purged = 0;
+    int batches = 0;
+    try {
+      while (batches < maxBatchesPerRun) {
+        int deleted = notificationRepository.deleteExpiredBatch(cutoff, batchSize);
+        batches++;
+        purged += deleted;
+        if (deleted < batchSize) break;
+        if (pauseMillis > 0) Thread.sleep(pauseMillis);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (Exception e) {
+      logger.warn("Notification expiry stopped after {} rows", purged, e);
+    }
+    purgedRows.increment(purged);
+    if (purged > 0) {
+      logger.info("Purged {} expired notifications in {} batch(es)", purged, batches);
+    }
+  }
+
+  // Partitions are monthly ranges on expires_at, so a month whose range has ended is dropped whole.
+  private void rotatePartitions() {
+    YearMonth current = YearMonth.now();
+    try {
+      for (int i = 0; i <= partitionsAhead; i++) {
+        YearMonth month = current.plusMonths(i);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+          " PARTITION OF notifications FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" +
+          month.plusMonths(1).atDay(1) + "')");
+      }
+
+      List<String> partitions = jdbcTemplate.queryForList(
+        "SELECT c.relname FROM pg_inherits i " +
+          "JOIN pg_class c ON c.oid = i.inhrelid " +
+          "JOIN pg_class p ON p.oid = i.inhparent " +
+          "WHERE p.relname = 'notifications'", String.class);
+      String oldestLive = partitionName(current);
+      for (String partition : partitions) {
+        if (partition.startsWith(PARTITION_PREFIX) && partition.compareTo(oldestLive) < 0) {
+          jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+          droppedPartitions.increment();
+          logger.info("Dropped expired notification partition {}", partition);
+        }
+      }
+    }
+    catch (Exception e) {
+      logger.warn("Unable to rotate notification partitions", e);
+    }
+    purgeInBatches();
+  }
+
+  private boolean isPartitioned() {
+    try {
+      Boolean partitioned = jdbcTemplate.queryForObject(
+        "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table t JOIN pg_class c ON c.oid = t.partrelid " +
+          "WHERE c.relname = 'notifications')", Boolean.class);
+      if (Boolean.TRUE.equals(partitioned)) return true;
+      logger.warn("notification.expiry.mode=partition but notifications is not partitioned; deleting in batches");
+    }
+    catch (Exception e) {
+      logger.warn("Unable to inspect notifications partitioning", e);
+    }
+    return false;
+  }
+
+  private String partitionName(YearMonth month) {
+    return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
   }
 
 }
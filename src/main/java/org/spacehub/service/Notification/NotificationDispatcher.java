@@ -0,0 +1,228 @@
+package org.spacehub.service.Notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.DTO.Notification.NotificationRequestDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class NotificationDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+  private static final String DEAD_LETTER_KEY = "notification:dead-letter";
+
+  private final BlockingQueue<Pending> queue;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long retryBackoffMillis;
+  private final long flushMillis;
+  private final int deadLetterLimit;
+  private final StringRedisTemplate redisTemplate;
+  private final ObjectMapper objectMapper;
+  private final ScheduledExecutorService worker;
+  private final TransactionTemplate persistTransaction;
+  private NotificationService notificationService;
+
+  private final Counter submitted;
+  private final Counter persisted;
+  private final Counter retried;
+  private final Counter deadLettered;
+  private final Counter overflowed;
+
+  public NotificationDispatcher(@Value("${notification.pipeline.capacity:10000}") int capacity,
+                                @Value("${notification.pipeline.batch-size:200}") int batchSize,
+                                @Value("${notification.pipeline.max-attempts:3}") int maxAttempts,
+                                @Value("${notification.pipeline.retry-backoff-ms:1000}") long retryBackoffMillis,
+                                @Value("${notification.pipeline.flush-ms:50}") long flushMillis,
+                                @Value("${notification.pipeline.dead-letter-limit:10000}") int deadLetterLimit,
+                                StringRedisTemplate redisTemplate,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry) {
+    this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+    this.batchSize = Math.max(1, batchSize);
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.retryBackoffMillis = retryBackoffMillis;
+    this.flushMillis = Math.max(1, flushMillis);
+    this.deadLetterLimit = Math.max(1, deadLetterLimit);
+    this.redisTemplate = redisTemplate;
+    this.objectMapper = objectMapper;
+    this.persistTransaction = new TransactionTemplate(transactionManager);
+    this.persistTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "notification-pipeline");
+      t.setDaemon(true);
+      return t;
+    });
+
+    this.submitted = Counter.builder("notification.pipeline.submitted").register(meterRegistry);
+    this.persisted = Counter.builder("notification.pipeline.persisted").register(meterRegistry);
+    this.retried = Counter.builder("notification.pipeline.retried").register(meterRegistry);
+    this.deadLettered = Counter.builder("notification.pipeline.dead.lettered").register(meterRegistry);
+    this.overflowed = Counter.builder("notification.pipeline.overflow").register(meterRegistry);
+    Gauge.builder("notification.pipeline.depth", queue, BlockingQueue::size).register(meterRegistry);
+  }
+
+  @Autowired
+  @Lazy
+  public void setNotificationService(NotificationService notificationService) {
+    this.notificationService = notificationService;
+  }
+
+  @PostConstruct
+  public void start() {
+    worker.scheduleWithFixedDelay(this::drain, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdown();
+    try {
+      worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    drain();
+  }
+
+  public void submit(NotificationRequestDTO request) {
+    if (request == null) return;
+    afterCommit(() -> enqueue(new Pending(request, 0)));
+  }
+
+  public void submitToAll(NotificationRequestDTO template, Collection<String> recipientEmails) {
+    if (template == null || recipientEmails == null || recipientEmails.isEmpty()) return;
+    List<Pending> fanOut = new ArrayList<>(recipientEmails.size());
+    for (String email : recipientEmails) {
+      if (email == null || email.isBlank()) continue;
+      fanOut.add(new Pending(template.toBuilder().email(email).build(), 0));
+    }
+    afterCommit(() -> fanOut.forEach(this::enqueue));
+  }
+
+  // Callers never block on a full queue: the overflow is written on the caller's thread instead.
+  private void enqueue(Pending pending) {
+    submitted.increment();
+    if (!queue.offer(pending)) {
+      overflowed.increment();
+      process(List.of(pending));
+    }
+  }
+
+  private void drain() {
+    try {
+      List<Pending> batch = new ArrayList<>(batchSize);
+      while (queue.drainTo(batch, batchSize) > 0) {
+        process(batch);
+        batch = new ArrayList<>(batchSize);
+      }
+    }
+    catch (Exception e) {
+      logger.error("Notification pipeline drain failed", e);
+    }
+  }
+
+  // A failing batch is replayed one request at a time so a single bad request cannot hold back the rest.
+  // Each batch gets its own transaction: overflow runs inside the submitter's afterCommit callback, where
+  // the finished transaction is still bound and a joined write would never be committed.
+  private void process(List<Pending> batch) {
+    List<NotificationRequestDTO> requests = batch.stream().map(Pending::request).toList();
+    try {
+      List<NotificationService.Rejection> rejected = persistTransaction.execute(
+        status -> notificationService.persistBatch(requests));
+      persisted.increment(requests.size() - rejected.size());
+      for (NotificationService.Rejection rejection : rejected) {
+        deadLetter(rejection.request(), 1, rejection.reason());
+      }
+    }
+    catch (Exception e) {
+      if (batch.size() > 1) {
+        for (Pending pending : batch) process(List.of(pending));
+      }
+      else {
+        retry(batch.get(0), e);
+      }
+    }
+  }
+
+  private void retry(Pending pending, Exception cause) {
+    int attempts = pending.attempts() + 1;
+    if (attempts >= maxAttempts) {
+      deadLetter(pending.request(), attempts, cause.getMessage());
+      return;
+    }
+    retried.increment();
+    try {
+      worker.schedule(() -> {
+        if (!queue.offer(new Pending(pending.request(), attempts))) {
+          deadLetter(pending.request(), attempts, "Pipeline full on retry");
+        }
+      }, retryBackoffMillis * attempts, TimeUnit.MILLISECONDS);
+    }
+    catch (RejectedExecutionException e) {
+      deadLetter(pending.request(), attempts, cause.getMessage());
+    }
+  }
+
+  private void deadLetter(NotificationRequestDTO request, int attempts, String reason) {
+    deadLettered.increment();
+    logger.warn("Dead-lettering notification {} for {} after {} attempt(s): {}", request.getType(),
+      request.getEmail(), attempts, reason);
+    try {
+      String entry = objectMapper.writeValueAsString(
+        new DeadLetter(request, attempts, reason, Instant.now().toEpochMilli()));
+      redisTemplate.opsForList().leftPush(DEAD_LETTER_KEY, entry);
+      redisTemplate.opsForList().trim(DEAD_LETTER_KEY, 0, deadLetterLimit - 1);
+    }
+    catch (Exception e) {
+      logger.error("Unable to store dead-lettered notification for {}", request.getEmail(), e);
+    }
+  }
+
+  private void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    }
+    else {
+      action.run();
+    }
+  }
+
+  private record Pending(NotificationRequestDTO request, int attempts) {}
+
+  private record DeadLetter(NotificationRequestDTO request, int attempts, String reason, long failedAt) {}
+
+}
@@ -7,6 +7,7 @@ import org.spacehub.entities.Community.Community;
 import org.spacehub.entities.User.User;
 import org.spacehub.DTO.Notification.NotificationRequestDTO;
 import org.spacehub.DTO.Notification.NotificationResponseDTO;
+import org.spacehub.DTO.Notification.NotificationUserRequest;
 import org.spacehub.handler.NotificationWebSocketHandler;
 import org.spacehub.mapper.NotificationMapper;
 import org.spacehub.repository.Notification.NotificationRepository;
@@ -14,8 +15,12 @@ import org.spacehub.repository.User.UserRepository;
 import org.spacehub.repository.community.CommunityRepository;
 import org.spacehub.service.Interface.INotificationService;
 import org.spacehub.utils.SecurityUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -31,13 +36,97 @@ public class NotificationService implements INotificationService {
   private final CommunityRepository communityRepository;
   private final NotificationWebSocketHandler notificationWebSocketHandler;
   private final NotificationMapper notificationMapper;
+  private final UnreadCounterService unreadCounters;
+  private final NotificationDispatcher notificationDispatcher;
+
+  public record Rejection(NotificationRequestDTO request, String reason) {}
 
   @Override
   public void createNotification(NotificationRequestDTO request) {
-    User recipient = fetchRecipient(request.getEmail());
-    User sender = fetchSenderIfProvided(request.getSenderEmail());
-    Community community = fetchCommunityIfProvided(request.getCommunityId());
+    notificationDispatcher.submit(request);
+  }
+
+  @Override
+  public void createNotificationForAll(NotificationRequestDTO template, Collection<String> recipientEmails) {
+    notificationDispatcher.submitToAll(template, recipientEmails);
+  }
+
+  // Resolves every recipient, sender and community of the batch up front and saves in one saveAll;
+  // requests naming an unknown user or community are returned, with the lookups that failed, instead of
+  // failing the whole batch.
+  public List<Rejection> persistBatch(List<NotificationRequestDTO> requests) {
+    Set<String> emails = new HashSet<>();
+    Set<UUID> communityIds = new HashSet<>();
+    for (NotificationRequestDTO request : requests) {
+      if (request.getEmail() != null) emails.add(request.getEmail());
+      if (request.getSenderEmail() != null && !request.getSenderEmail().isBlank()) emails.add(request.getSenderEmail());
+      if (request.getCommunityId() != null) communityIds.add(request.getCommunityId());
+    }
+
+    Map<String, User> users = new HashMap<>();
+    for (User user : userRepository.findByEmailIn(emails)) {
+      users.put(user.getEmail().toLowerCase(Locale.ROOT), user);
+    }
+    Map<UUID, Community> communities = new HashMap<>();
+    for (Community community : communityRepository.findAllById(communityIds)) {
+      communities.put(community.getId(), community);
+    }
+
+    List<Rejection> rejected = new ArrayList<>();
+    List<Notification> notifications = new ArrayList<>(requests.size());
+    for (NotificationRequestDTO request : requests) {
+      User recipient = request.getEmail() == null ? null : users.get(request.getEmail().toLowerCase(Locale.ROOT));
+      boolean hasSender = request.getSenderEmail() != null && !request.getSenderEmail().isBlank();
+      User sender = hasSender ? users.get(request.getSenderEmail().toLowerCase(Locale.ROOT)) : null;
+      Community community = request.getCommunityId() == null ? null : communities.get(request.getCommunityId());
+
+      List<String> missing = new ArrayList<>(3);
+      if (recipient == null) missing.add("Unknown recipient " + request.getEmail());
+      if (hasSender && sender == null) missing.add("Unknown sender " + request.getSenderEmail());
+      if (request.getCommunityId() != null && community == null) missing.add("Unknown community " + request.getCommunityId());
+      if (!missing.isEmpty()) {
+        rejected.add(new Rejection(request, String.join(", ", missing)));
+        continue;
+      }
+      notifications.add(buildNotification(request, recipient, sender, community));
+    }
 
+    if (notifications.isEmpty()) return rejected;
+    notificationRepository.saveAll(notifications);
+
+    List<NotificationResponseDTO> delivered = new ArrayList<>(notifications.size());
+    for (Notification notification : notifications) {
+      unreadCounters.notificationCreated(notification.getRecipient().getEmail());
+      delivered.add(notificationMapper.mapToDTO(notification));
+    }
+    deliverAfterCommit(delivered, notifications);
+    return rejected;
+  }
+
+  private void deliverAfterCommit(List<NotificationResponseDTO> delivered, List<Notification> notifications) {
+    Runnable push = () -> {
+      for (int i = 0; i < delivered.size(); i++) {
+        try {
+          notificationWebSocketHandler.sendNotification(notifications.get(i).getRecipient().getEmail(),
+            delivered.get(i));
+        } catch (Exception ignored) {}
+      }
+    };
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          push.run();
+        }
+      });
+    }
+    else {
+      push.run();
+    }
+  }
+
+  private Notification buildNotification(NotificationRequestDTO request, User recipient, User sender,
+                                         Community community) {
     NotificationType type = request.getType();
     Template template = TEMPLATES.getOrDefault(type, DEFAULT_TEMPLATE);
 
@@ -67,7 +156,7 @@ public class NotificationService implements INotificationService {
 
     boolean actionable = request.isActionable() || Boolean.TRUE.equals(template.actionableDefault());
 
-    Notification notification = Notification.builder()
+    return Notification.builder()
       .publicId(UUID.randomUUID())
       .title(title)
       .message(message)
@@ -82,34 +171,6 @@ public class NotificationService implements INotificationService {
       .expiresAt(LocalDateTime.now().plusDays(30))
       .read(false)
       .build();
-
-    notificationRepository.save(notification);
-
-    NotificationResponseDTO dto = notificationMapper.mapToDTO(notification);
-    try {
-      notificationWebSocketHandler.sendNotification(request.getEmail(), dto);
-    } catch (Exception ignored) {}
-  }
-
-  private User fetchRecipient(String email) {
-    return userRepository.findByEmail(email)
-      .orElseThrow(() -> new RuntimeException("User not found: " + email));
-  }
-
-  private User fetchSenderIfProvided(String senderEmail) {
-    if (senderEmail == null || senderEmail.isBlank()) {
-      return null;
-    }
-    return userRepository.findByEmail(senderEmail)
-      .orElseThrow(() -> new RuntimeException("Sender not found: " + senderEmail));
-  }
-
-  private Community fetchCommunityIfProvided(UUID communityId) {
-    if (communityId == null) {
-      return null;
-    }
-    return communityRepository.findById(communityId)
-      .orElseThrow(() -> new RuntimeException("Community not found with ID: " + communityId));
   }
 
   private String fillTemplate(String tpl, String senderName, String communityName) {
@@ -125,54 +186,45 @@ public class NotificationService implements INotificationService {
 
   @Override
   @Transactional(readOnly = true)
-  public List<NotificationResponseDTO> getUserNotifications(String scope, int page, int size) {
+  public List<NotificationResponseDTO> getUserNotifications(NotificationUserRequest request) {
     String email = SecurityUtils.getCurrentUserEmail();
-    List<Notification> list = notificationRepository.findAllByRecipientWithDetails(email);
-
-    if (scope != null && !scope.isBlank()) {
-      list = list.stream()
-              .filter(n -> scope.equalsIgnoreCase(n.getScope()))
-              .toList();
-    }
-
-    int start = page * size;
-    int end = Math.min(start + size, list.size());
-    if (start >= end) {
-      return Collections.emptyList();
-    }
-
-    return list.subList(start, end).stream()
+    return findPage(email, request.getScope(), request).stream()
       .map(notificationMapper::mapToDTO)
       .collect(Collectors.toList());
   }
 
   @Override
-  public List<NotificationResponseDTO> fetchAndMarkRead(int page, int size) {
+  public List<NotificationResponseDTO> fetchAndMarkRead(NotificationUserRequest request) {
     String email = SecurityUtils.getCurrentUserEmail();
-    List<Notification> all = notificationRepository.findAllByRecipientWithDetails(email);
-
-    boolean changed = false;
-    for (Notification n : all) {
-      if (!n.isActionable() && !n.isRead()) {
-        n.setRead(true);
-        changed = true;
-      }
-    }
-    if (changed) {
-      notificationRepository.saveAll(all);
-    }
-
-    int start = page * size;
-    int end = Math.min(start + size, all.size());
-    if (start >= end) {
-      return Collections.emptyList();
+    if (notificationRepository.markAllReadForRecipient(email) > 0) {
+      unreadCounters.invalidateNotifications(email);
     }
 
-    return all.subList(start, end).stream()
+    return findPage(email, null, request).stream()
       .map(notificationMapper::mapToDTO)
       .collect(Collectors.toList());
   }
 
+  // A (beforeCreatedAt, beforeId) cursor seeks straight to the next page; page/size remains for older clients.
+  private List<Notification> findPage(String email, String scope, NotificationUserRequest request) {
+    int size = Math.max(1, request.getSize());
+    boolean scoped = scope != null && !scope.isBlank();
+
+    if (request.getBeforeCreatedAt() != null && request.getBeforeId() != null) {
+      Pageable limit = PageRequest.of(0, size);
+      return scoped
+        ? notificationRepository.findByRecipientAndScopeWithDetailsBefore(email, scope,
+            request.getBeforeCreatedAt(), request.getBeforeId(), limit)
+        : notificationRepository.findByRecipientWithDetailsBefore(email,
+            request.getBeforeCreatedAt(), request.getBeforeId(), limit);
+    }
+
+    Pageable page = PageRequest.of(Math.max(0, request.getPage()), size);
+    return scoped
+      ? notificationRepository.findLatestByRecipientAndScopeWithDetails(email, scope, page)
+      : notificationRepository.findLatestByRecipientWithDetails(email, page);
+  }
+
   @Override
   public void markAsRead(UUID id) {
     Notification notification = notificationRepository.findById(id)
@@ -181,23 +233,23 @@ public class NotificationService implements INotificationService {
     if (!notification.isRead() && !notification.isActionable()) {
       notification.setRead(true);
       notificationRepository.save(notification);
+      unreadCounters.notificationRead(notification.getRecipient().getEmail());
     }
   }
 
   @Override
   public void deleteNotification(UUID id) {
-    if (!notificationRepository.existsById(id)) {
-      throw new RuntimeException("Notification not found with ID: " + id);
-    }
-    notificationRepository.deleteById(id);
+    Notification notification = notificationRepository.findById(id)
+      .orElseThrow(() -> new RuntimeException("Notification not found with ID: " + id));
+    notificationRepository.delete(notification);
+    if (!notification.isRead()) unreadCounters.notificationRead(notification.getRecipient().getEmail());
   }
 
   @Override
   @Transactional(readOnly = true)
   public long countUnreadNotifications() {
     String email = SecurityUtils.getCurrentUserEmail();
-    return notificationRepository.findByRecipientEmailOrderByCreatedAtDesc(email).stream()
-      .filter(n -> !n.isRead()).count();
+    return unreadCounters.unreadNotifications(email);
   }
 
   @Override
@@ -211,6 +263,7 @@ public class NotificationService implements INotificationService {
     }
 
     notificationRepository.deleteByPublicId(publicId);
+    if (!notification.isRead()) unreadCounters.notificationRead(userEmail);
   }
 
   public void sendLocalGroupJoinNotification(User newMember, User inviter, UUID groupId) {
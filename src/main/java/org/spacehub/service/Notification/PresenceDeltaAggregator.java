@@ -0,0 +1,88 @@
+package org.spacehub.service.Notification;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.spacehub.DTO.presence.PresenceDeltaDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Component
+public class PresenceDeltaAggregator {
+
+  private final int maxEntriesPerFrame;
+  private final Map<Long, PendingDelta> pending = new ConcurrentHashMap<>();
+
+  private final Counter rawEvents;
+  private final Counter coalescedEvents;
+  private final Counter frames;
+
+  public PresenceDeltaAggregator(@Value("${presence.delta.max-entries:500}") int maxEntriesPerFrame,
+                                 MeterRegistry meterRegistry) {
+    this.maxEntriesPerFrame = Math.max(1, maxEntriesPerFrame);
+    this.rawEvents = Counter.builder("presence.events").tag("stage", "raw").register(meterRegistry);
+    this.coalescedEvents = Counter.builder("presence.events").tag("stage", "coalesced").register(meterRegistry);
+    this.frames = Counter.builder("presence.delta.frames").register(meterRegistry);
+    Gauge.builder("presence.delta.pending.communities", pending, Map::size).register(meterRegistry);
+  }
+
+  public void joined(Long communityId, String email) {
+    rawEvents.increment();
+    pending.compute(communityId, (k, delta) -> (delta == null ? new PendingDelta() : delta).joined(email));
+  }
+
+  public void left(Long communityId, String email) {
+    rawEvents.increment();
+    pending.compute(communityId, (k, delta) -> (delta == null ? new PendingDelta() : delta).left(email));
+  }
+
+  // Each community gets at most one round of frames per window; huge deltas are split so no frame
+  // carries more than maxEntriesPerFrame emails.
+  public void drain(Consumer<PresenceDeltaDTO> sink) {
+    for (Long communityId : pending.keySet()) {
+      PendingDelta delta = pending.remove(communityId);
+      if (delta == null) continue;
+      List<String> joined = new ArrayList<>(delta.joined);
+      List<String> left = new ArrayList<>(delta.left);
+      if (joined.isEmpty() && left.isEmpty()) continue;
+      coalescedEvents.increment(joined.size() + left.size());
+
+      int j = 0;
+      int l = 0;
+      while (j < joined.size() || l < left.size()) {
+        int joinedEnd = Math.min(joined.size(), j + maxEntriesPerFrame);
+        int leftEnd = Math.min(left.size(), l + maxEntriesPerFrame - (joinedEnd - j));
+        sink.accept(new PresenceDeltaDTO(communityId, joined.subList(j, joinedEnd), left.subList(l, leftEnd)));
+        frames.increment();
+        j = joinedEnd;
+        l = leftEnd;
+      }
+    }
+  }
+
+  // Mutated only inside pending.compute, so a drain never races a late update. A join and leave of the
+  // same user inside one window cancel out.
+  private static final class PendingDelta {
+    private final Set<String> joined = new LinkedHashSet<>();
+    private final Set<String> left = new LinkedHashSet<>();
+
+    private PendingDelta joined(String email) {
+      if (!left.remove(email)) joined.add(email);
+      return this;
+    }
+
+    private PendingDelta left(String email) {
+      if (!joined.remove(email)) left.add(email);
+      return this;
+    }
+  }
+
+}
@@ -1,78 +1,243 @@
 package org.spacehub.service.Notification;
 
-import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.DTO.presence.OnlineUsersDTO;
 import org.spacehub.service.Interface.IPresenceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.spacehub.DTO.presence.OnlineUsersDTO;
+
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 @Service
-@RequiredArgsConstructor
 public class PresenceService implements IPresenceService {
 
+  private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+  private static final String COMMUNITIES_KEY = "presence:communities";
+
+  // Sessions are scored by expiry; users counts sessions per email so joins and leaves are reported once
+  // per person across every node, and online keeps those emails in lexicographic order for paging.
+  private static final RedisScript<Long> CONNECT = new DefaultRedisScript<>(
+    "if redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1]) == 1 then " +
+      "redis.call('HSET', KEYS[2], ARGV[1], ARGV[2]) " +
+      "redis.call('SADD', KEYS[4], ARGV[4]) " +
+      "local count = redis.call('HINCRBY', KEYS[3], ARGV[2], 1) " +
+      "if count == 1 then redis.call('ZADD', KEYS[5], 0, ARGV[2]) end " +
+      "return count " +
+    "end " +
+    "return 0", Long.class);
+
+  private static final RedisScript<List> REMOVE = new DefaultRedisScript<>(
+    "local ids " +
+    "if ARGV[2] == 'expired' then " +
+      "ids = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[3], 'LIMIT', 0, tonumber(ARGV[4])) " +
+    "else " +
+      "ids = {ARGV[3]} " +
+    "end " +
+    "local left = {} " +
+    "for _, id in ipairs(ids) do " +
+      "if redis.call('ZREM', KEYS[1], id) == 1 then " +
+        "local email = redis.call('HGET', KEYS[2], id) " +
+        "redis.call('HDEL', KEYS[2], id) " +
+        "if email and redis.call('HINCRBY', KEYS[3], email, -1) <= 0 then " +
+          "redis.call('HDEL', KEYS[3], email) " +
+          "redis.call('ZREM', KEYS[5], email) " +
+          "table.insert(left, email) " +
+        "end " +
+      "end " +
+    "end " +
+    "if redis.call('ZCARD', KEYS[1]) == 0 then redis.call('SREM', KEYS[4], ARGV[1]) end " +
+    "return left", List.class);
+
   private final SimpMessagingTemplate messagingTemplate;
-  private final ConcurrentMap<Long, ConcurrentMap<String, Integer>> online = new ConcurrentHashMap<>();
+  private final StringRedisTemplate redisTemplate;
+  private final PresenceDeltaAggregator deltaAggregator;
+  private final long ttlMillis;
+  private final int sweepBatch;
+  private final int maxPageSize;
+  private final String nodeId = UUID.randomUUID().toString();
+
   private final ConcurrentMap<String, PresenceSession> sessions = new ConcurrentHashMap<>();
 
   public record PresenceSession(Long communityId, String email) {}
 
+  public PresenceService(SimpMessagingTemplate messagingTemplate,
+                         StringRedisTemplate redisTemplate,
+                         PresenceDeltaAggregator deltaAggregator,
+                         @Value("${presence.ttl-ms:45000}") long ttlMillis,
+                         @Value("${presence.sweep-batch:500}") int sweepBatch,
+                         @Value("${presence.snapshot.max-page-size:1000}") int maxPageSize) {
+    this.messagingTemplate = messagingTemplate;
+    this.redisTemplate = redisTemplate;
+    this.deltaAggregator = deltaAggregator;
+    this.ttlMillis = ttlMillis;
+    this.sweepBatch = sweepBatch;
+    this.maxPageSize = Math.max(1, maxPageSize);
+  }
+
   public void userConnected(String sessionId, Long communityId, String email) {
-    sessions.put(sessionId, new PresenceSession(communityId, email));
-
-    ConcurrentHashMap<String, Integer> emailMap =
-      (ConcurrentHashMap<String, Integer>) online.computeIfAbsent(communityId, k -> new ConcurrentHashMap<>());
-    if (emailMap.containsKey(email)) {
-      emailMap.put(email, emailMap.get(email) + 1);
-    } else {
-      emailMap.put(email, 1);
+    if (sessionId == null || communityId == null || email == null) return;
+    PresenceSession previous = sessions.put(sessionId, new PresenceSession(communityId, email));
+    if (previous != null && !previous.communityId().equals(communityId)) {
+      remove(previous.communityId(), sessionId);
     }
 
-    broadcastOnlineUsers(communityId);
+    connect(sessionId, communityId, email);
+  }
+
+  private void connect(String sessionId, Long communityId, String email) {
+    try {
+      Long count = redisTemplate.execute(CONNECT, keys(communityId), member(sessionId), email,
+        String.valueOf(System.currentTimeMillis() + ttlMillis), communityId.toString());
+      if (count != null && count == 1) deltaAggregator.joined(communityId, email);
+    }
+    catch (Exception e) {
+      logger.warn("Unable to record presence for {} in community {}", email, communityId, e);
+    }
   }
 
   public void userDisconnected(String sessionId) {
+    if (sessionId == null) return;
     PresenceSession ps = sessions.remove(sessionId);
     if (ps == null) {
       return;
     }
+    remove(ps.communityId(), sessionId);
+  }
 
-    Long communityId = ps.communityId();
-    String email = ps.email();
+  public void userLeft(String sessionId) {
+    userDisconnected(sessionId);
+  }
 
-    ConcurrentMap<String, Integer> communityMap = online.get(communityId);
-    if (communityMap == null) {
-      return;
+  public OnlineUsersDTO getOnlineUsers(Long communityId, String cursor, Integer limit) {
+    int pageSize = limit == null || limit <= 0 ? maxPageSize : Math.min(limit, maxPageSize);
+    try {
+      String key = onlineKey(communityId);
+      Range<String> range = cursor == null || cursor.isBlank()
+        ? Range.unbounded()
+        : Range.rightUnbounded(Range.Bound.exclusive(cursor));
+      Set<String> page = redisTemplate.opsForZSet().rangeByLex(key, range, Limit.limit().count(pageSize + 1));
+      List<String> online = page == null ? new ArrayList<>() : new ArrayList<>(page);
+      String nextCursor = null;
+      if (online.size() > pageSize) {
+        online = new ArrayList<>(online.subList(0, pageSize));
+        nextCursor = online.get(pageSize - 1);
+      }
+      Long total = redisTemplate.opsForZSet().zCard(key);
+      return new OnlineUsersDTO(communityId, online, nextCursor, total == null ? online.size() : total);
     }
+    catch (Exception e) {
+      logger.warn("Unable to read presence for community {}", communityId, e);
+      return new OnlineUsersDTO(communityId, Collections.emptyList(), null, 0L);
+    }
+  }
 
-    communityMap.computeIfPresent(email, (k, v) -> {
-      if (v <= 1) {
+  // XX CH only refreshes sessions still in the zset. One that was swept while Redis was unreachable
+  // (or flushed) reports no change, and goes back through CONNECT so its owner and user counts return too.
+  @Scheduled(fixedRateString = "${presence.heartbeat-ms:15000}")
+  public void heartbeat() {
+    if (sessions.isEmpty()) return;
+    double expiresAt = System.currentTimeMillis() + ttlMillis;
+    List<Map.Entry<String, PresenceSession>> local = new ArrayList<>(sessions.entrySet());
+    List<Object> refreshed;
+    try {
+      refreshed = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+        for (Map.Entry<String, PresenceSession> entry : local) {
+          connection.zSetCommands().zAdd(sessionsKey(entry.getValue().communityId()).getBytes(StandardCharsets.UTF_8),
+            expiresAt, member(entry.getKey()).getBytes(StandardCharsets.UTF_8),
+            RedisZSetCommands.ZAddArgs.ifExists().ch());
+        }
         return null;
-      }
-      return v - 1;
-    });
+      });
+    }
+    catch (Exception e) {
+      logger.warn("Unable to refresh presence heartbeats", e);
+      return;
+    }
 
-    if (communityMap.isEmpty()) online.remove(communityId);
+    for (int i = 0; i < local.size() && i < refreshed.size(); i++) {
+      if (Boolean.TRUE.equals(refreshed.get(i))) continue;
+      String sessionId = local.get(i).getKey();
+      PresenceSession session = local.get(i).getValue();
+      if (session.equals(sessions.get(sessionId))) {
+        connect(sessionId, session.communityId(), session.email());
+      }
+    }
+  }
 
-    broadcastOnlineUsers(communityId);
+  @Scheduled(fixedRateString = "${presence.heartbeat-ms:15000}", initialDelayString = "${presence.heartbeat-ms:15000}")
+  public void expireStaleSessions() {
+    try {
+      Set<String> communities = redisTemplate.opsForSet().members(COMMUNITIES_KEY);
+      if (communities == null) return;
+      String now = String.valueOf(System.currentTimeMillis());
+      for (String id : communities) {
+        Long communityId = Long.valueOf(id);
+        List<?> left = redisTemplate.execute(REMOVE, keys(communityId), id, "expired", now,
+          String.valueOf(sweepBatch));
+        recordLeft(communityId, left);
+      }
+    }
+    catch (Exception e) {
+      logger.warn("Unable to expire stale presence sessions", e);
+    }
   }
 
-  public void userLeft(String sessionId) {
-    userDisconnected(sessionId);
+  @Scheduled(fixedDelayString = "${presence.broadcast-window-ms:250}")
+  public void broadcastDeltas() {
+    deltaAggregator.drain(delta ->
+      messagingTemplate.convertAndSend("/topic/community." + delta.getCommunityId() + ".online", delta));
   }
 
-  private void broadcastOnlineUsers(Long communityId) {
-    ConcurrentMap<String, Integer> communityMap = online.get(communityId);
-    List<String> emails;
-    if (communityMap == null) {
-      emails = Collections.emptyList();
-    } else {
-      emails = new ArrayList<>(communityMap.keySet());
+  private void remove(Long communityId, String sessionId) {
+    try {
+      List<?> left = redisTemplate.execute(REMOVE, keys(communityId), communityId.toString(), "session",
+        member(sessionId));
+      recordLeft(communityId, left);
     }
-    OnlineUsersDTO dto = new OnlineUsersDTO(communityId, emails);
-    messagingTemplate.convertAndSend("/topic/community." + communityId + ".online", dto);
+    catch (Exception e) {
+      logger.warn("Unable to remove presence session {} from community {}", sessionId, communityId, e);
+    }
+  }
+
+  // STOMP session ids are only unique within one broker, so the shared sets key them by node as well.
+  private String member(String sessionId) {
+    return nodeId + ":" + sessionId;
+  }
+
+  private void recordLeft(Long communityId, List<?> left) {
+    if (left == null || left.isEmpty()) return;
+    for (Object email : left) deltaAggregator.left(communityId, email.toString());
+  }
+
+  private List<String> keys(Long communityId) {
+    return List.of(sessionsKey(communityId), "presence:" + communityId + ":owners", usersKey(communityId),
+      COMMUNITIES_KEY, onlineKey(communityId));
+  }
+
+  private String sessionsKey(Long communityId) {
+    return "presence:" + communityId + ":sessions";
+  }
+
+  private String usersKey(Long communityId) {
+    return "presence:" + communityId + ":users";
+  }
+
+  private String onlineKey(Long communityId) {
+    return "presence:" + communityId + ":online";
   }
 
 }
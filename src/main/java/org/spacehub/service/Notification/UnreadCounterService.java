@@ -0,0 +1,308 @@
+package org.spacehub.service.Notification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.entities.DirectMessaging.Message;
+import org.spacehub.repository.ChatRoom.MessageRepository;
+import org.spacehub.repository.Notification.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class UnreadCounterService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UnreadCounterService.class);
+
+  private static final String TRACKED_KEY = "unread:tracked";
+  private static final String RECONCILE_LOCK_KEY = "unread:reconcile:lock";
+  private static final String LOADED_FIELD = "_";
+  private static final Duration LOAD_WINDOW = Duration.ofSeconds(30);
+
+  // Counters are only adjusted once loaded, so a user who never asked for a badge costs nothing, and a
+  // decrement never takes a counter below zero. Every change also drops the counter's load token (KEYS[2]),
+  // so a count read from the database while the change was committing is never stored over it.
+  private static final RedisScript<Long> ADJUST_HASH = new DefaultRedisScript<>(
+    "redis.call('DEL', KEYS[2]) " +
+    "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+    "local value = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2]) " +
+    "if value <= 0 then redis.call('HDEL', KEYS[1], ARGV[1]) return 0 end " +
+    "return value", Long.class);
+
+  private static final RedisScript<Long> ADJUST_VALUE = new DefaultRedisScript<>(
+    "redis.call('DEL', KEYS[2]) " +
+    "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end " +
+    "local value = redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+    "if value < 0 then redis.call('SET', KEYS[1], 0, 'KEEPTTL') return 0 end " +
+    "return value", Long.class);
+
+  private static final RedisScript<Long> CLEAR_FIELD = new DefaultRedisScript<>(
+    "redis.call('DEL', KEYS[2]) " +
+    "return redis.call('HDEL', KEYS[1], ARGV[1])", Long.class);
+
+  // A loaded count is stored only if its load token survived the database read untouched.
+  private static final RedisScript<Long> STORE_VALUE = new DefaultRedisScript<>(
+    "if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end " +
+    "redis.call('DEL', KEYS[2]) " +
+    "redis.call('SET', KEYS[1], ARGV[3], 'PX', ARGV[2]) " +
+    "return 1", Long.class);
+
+  private static final RedisScript<Long> STORE_HASH = new DefaultRedisScript<>(
+    "if redis.call('GET', KEYS[2]) ~= ARGV[1] then return 0 end " +
+    "redis.call('DEL', KEYS[2], KEYS[1]) " +
+    "redis.call('HSET', KEYS[1], unpack(ARGV, 3)) " +
+    "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+    "return 1", Long.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final NotificationRepository notificationRepository;
+  private final MessageRepository messageRepository;
+  private final Duration ttl;
+  private final int reconcileBatch;
+
+  public UnreadCounterService(StringRedisTemplate redisTemplate,
+                              NotificationRepository notificationRepository,
+                              MessageRepository messageRepository,
+                              @Value("${unread.ttl:1h}") Duration ttl,
+                              @Value("${unread.reconcile-batch:500}") int reconcileBatch) {
+    this.redisTemplate = redisTemplate;
+    this.notificationRepository = notificationRepository;
+    this.messageRepository = messageRepository;
+    this.ttl = ttl;
+    this.reconcileBatch = Math.max(1, reconcileBatch);
+  }
+
+  public long unreadNotifications(String email) {
+    String key = notificationKey(email);
+    try {
+      String cached = redisTemplate.opsForValue().get(key);
+      if (cached != null) return Long.parseLong(cached);
+      long count = loadNotificationCount(email);
+      track(email);
+      return count;
+    }
+    catch (Exception e) {
+      logger.warn("Unread notification counter unavailable for {}", email, e);
+      return notificationRepository.countByRecipientEmailAndReadFalse(email);
+    }
+  }
+
+  public Map<String, Long> unreadDirectMessagesByPartner(String email) {
+    String key = directKey(email);
+    try {
+      Map<Object, Object> cached = redisTemplate.opsForHash().entries(key);
+      if (!cached.isEmpty()) {
+        Map<String, Long> counts = new HashMap<>();
+        cached.forEach((partner, count) -> {
+          if (!LOADED_FIELD.equals(partner)) counts.put(partner.toString(), Long.parseLong(count.toString()));
+        });
+        return counts;
+      }
+      Map<String, Long> counts = loadAndStoreDirectCounts(email);
+      track(email);
+      return counts;
+    }
+    catch (Exception e) {
+      logger.warn("Unread message counter unavailable for {}", email, e);
+      return loadDirectCounts(email);
+    }
+  }
+
+  public long unreadDirectMessages(String email) {
+    return unreadDirectMessagesByPartner(email).values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  public long unreadDirectMessagesInChat(String email, String partner) {
+    return unreadDirectMessagesByPartner(email).getOrDefault(normalize(partner), 0L);
+  }
+
+  public void notificationCreated(String email) {
+    afterCommit(() -> adjustValue(notificationKey(email), 1));
+  }
+
+  public void notificationRead(String email) {
+    afterCommit(() -> adjustValue(notificationKey(email), -1));
+  }
+
+  public void invalidateNotifications(String email) {
+    afterCommit(() -> delete(notificationKey(email)));
+  }
+
+  // Direct messages count once they are persisted, matching what a load reads from the database; the
+  // queue flushes a conversation at a time, so a batch touches at most two counters.
+  public void directMessagesPersisted(List<Message> messages) {
+    Map<String, Map<String, Long>> unread = new HashMap<>();
+    for (Message m : messages) {
+      if (Boolean.TRUE.equals(m.getReadStatus())) continue;
+      unread.computeIfAbsent(normalize(m.getReceiverEmail()), k -> new HashMap<>())
+        .merge(normalize(m.getSenderEmail()), 1L, Long::sum);
+    }
+    if (unread.isEmpty()) return;
+    afterCommit(() -> unread.forEach((receiver, bySender) ->
+      bySender.forEach((sender, count) -> adjustHash(directKey(receiver), sender, count))));
+  }
+
+  public void directMessageRead(String receiverEmail, String senderEmail) {
+    afterCommit(() -> adjustHash(directKey(receiverEmail), normalize(senderEmail), -1));
+  }
+
+  public void directChatRead(String receiverEmail, String senderEmail) {
+    afterCommit(() -> {
+      try {
+        String key = directKey(receiverEmail);
+        redisTemplate.execute(CLEAR_FIELD, List.of(key, loadingKey(key)), normalize(senderEmail));
+      }
+      catch (Exception e) {
+        logger.warn("Unable to clear unread counter for {}", receiverEmail, e);
+      }
+    });
+  }
+
+  // Corrects drift from bulk updates and expired rows by recomputing loaded counters; one node does the
+  // pass at a time.
+  @Scheduled(fixedDelayString = "${unread.reconcile-ms:300000}", initialDelayString = "${unread.reconcile-ms:300000}")
+  public void reconcile() {
+    try {
+      Boolean acquired = redisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, "1", Duration.ofMinutes(1));
+      if (!Boolean.TRUE.equals(acquired)) return;
+
+      Set<String> emails = redisTemplate.opsForSet().distinctRandomMembers(TRACKED_KEY, reconcileBatch);
+      if (emails == null) return;
+      for (String email : emails) {
+        boolean notificationsLoaded = Boolean.TRUE.equals(redisTemplate.hasKey(notificationKey(email)));
+        boolean directLoaded = Boolean.TRUE.equals(redisTemplate.hasKey(directKey(email)));
+        if (!notificationsLoaded && !directLoaded) {
+          redisTemplate.opsForSet().remove(TRACKED_KEY, email);
+          continue;
+        }
+        if (notificationsLoaded) {
+          loadNotificationCount(email);
+        }
+        if (directLoaded) {
+          loadAndStoreDirectCounts(email);
+        }
+      }
+    }
+    catch (Exception e) {
+      logger.warn("Unable to reconcile unread counters", e);
+    }
+  }
+
+  private Map<String, Long> loadDirectCounts(String email) {
+    Map<String, Long> counts = new HashMap<>();
+    for (Object[] row : messageRepository.countUnreadBySender(normalize(email))) {
+      counts.put(normalize((String) row[0]), (Long) row[1]);
+    }
+    return counts;
+  }
+
+  private long loadNotificationCount(String email) {
+    String key = notificationKey(email);
+    String token = beginLoad(key);
+    long count = notificationRepository.countByRecipientEmailAndReadFalse(email);
+    redisTemplate.execute(STORE_VALUE, List.of(key, loadingKey(key)), token, String.valueOf(ttl.toMillis()),
+      String.valueOf(count));
+    return count;
+  }
+
+  private Map<String, Long> loadAndStoreDirectCounts(String email) {
+    String key = directKey(email);
+    String token = beginLoad(key);
+    Map<String, Long> counts = loadDirectCounts(email);
+    List<String> args = new ArrayList<>(4 + 2 * counts.size());
+    args.add(token);
+    args.add(String.valueOf(ttl.toMillis()));
+    args.add(LOADED_FIELD);
+    args.add("0");
+    counts.forEach((partner, count) -> {
+      args.add(partner);
+      args.add(String.valueOf(count));
+    });
+    redisTemplate.execute(STORE_HASH, List.of(key, loadingKey(key)), args.toArray());
+    return counts;
+  }
+
+  // Any change to the counter before the store deletes the token, and the loaded count is then dropped
+  // rather than overwriting it; the next read loads again.
+  private String beginLoad(String key) {
+    String token = UUID.randomUUID().toString();
+    redisTemplate.opsForValue().set(loadingKey(key), token, LOAD_WINDOW);
+    return token;
+  }
+
+  private void adjustHash(String key, String field, long delta) {
+    try {
+      redisTemplate.execute(ADJUST_HASH, List.of(key, loadingKey(key)), field, String.valueOf(delta));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to adjust unread counter {}", key, e);
+    }
+  }
+
+  private void adjustValue(String key, long delta) {
+    try {
+      redisTemplate.execute(ADJUST_VALUE, List.of(key, loadingKey(key)), String.valueOf(delta));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to adjust unread counter {}", key, e);
+    }
+  }
+
+  private void delete(String key) {
+    try {
+      redisTemplate.delete(List.of(key, loadingKey(key)));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to drop unread counter {}", key, e);
+    }
+  }
+
+  private void track(String email) {
+    redisTemplate.opsForSet().add(TRACKED_KEY, normalize(email));
+  }
+
+  private void afterCommit(Runnable action) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          action.run();
+        }
+      });
+    }
+    else {
+      action.run();
+    }
+  }
+
+  private String notificationKey(String email) {
+    return "unread:notifications:" + normalize(email);
+  }
+
+  private String directKey(String email) {
+    return "unread:dm:" + normalize(email);
+  }
+
+  private String loadingKey(String key) {
+    return key + ":loading";
+  }
+
+  private String normalize(String email) {
+    return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+  }
+
+}
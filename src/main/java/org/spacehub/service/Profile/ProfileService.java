@@ -7,6 +7,7 @@ import org.spacehub.DTO.User.DeleteAccount;
 import org.spacehub.DTO.User.UserProfileDTO;
 import org.spacehub.DTO.User.UserProfileResponse;
 import org.spacehub.entities.Community.Community;
+import org.spacehub.entities.Community.CommunityUser;
 import org.spacehub.entities.LocalGroup.LocalGroup;
 import org.spacehub.entities.User.User;
 import org.spacehub.repository.Notification.NotificationRepository;
@@ -18,6 +19,8 @@ import org.spacehub.repository.community.CommunityUserRepository;
 import org.spacehub.repository.localgroup.LocalGroupRepository;
 import org.spacehub.service.Interface.IProfileService;
 import org.spacehub.service.File.S3Service;
+import org.spacehub.service.community.CommunityCounterService;
+import org.spacehub.service.serviceAuth.UserSnapshotCache;
 import org.spacehub.utils.SecurityUtils;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -43,6 +46,9 @@ public class ProfileService implements IProfileService {
   private final NotificationRepository notificationRepository;
   private final RefreshTokenRepository refreshTokenRepository;
   private final ScheduledMessageRepository scheduledMessageRepository;
+  private final UserProfileCache userProfileCache;
+  private final CommunityCounterService communityCounterService;
+  private final UserSnapshotCache userSnapshotCache;
 
   @Override
   public UserProfileResponse getProfile() {
@@ -69,6 +75,8 @@ public class ProfileService implements IProfileService {
       updatePasswordIfNeeded(user, dto);
 
       userRepository.save(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(email);
       log.info("Profile updated successfully for user: {}", email);
       return buildResponse(user);
     }
@@ -108,6 +116,8 @@ public class ProfileService implements IProfileService {
       s3Service.uploadFile(key, file.getInputStream(), file.getSize());
       user.setAvatarUrl(key);
       userRepository.save(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(email);
       return buildResponse(user);
     }
     catch (Exception e) {
@@ -130,6 +140,7 @@ public class ProfileService implements IProfileService {
       s3Service.uploadFile(key, file.getInputStream(), file.getSize());
       user.setCoverPhotoUrl(key);
       userRepository.save(user);
+      userSnapshotCache.invalidate(user.getEmail());
       return buildResponse(user);
     }
     catch (Exception e) {
@@ -178,6 +189,8 @@ public class ProfileService implements IProfileService {
       safeDelete(user.getCoverPhotoUrl());
 
       userRepository.delete(user);
+      userProfileCache.invalidate(email);
+      userSnapshotCache.invalidate(user.getEmail());
 
     } catch (Exception e) {
       throw new RuntimeException("Account deletion failed, please try again later.");
@@ -210,23 +223,33 @@ public class ProfileService implements IProfileService {
     List<Community> createdCommunities = communityRepository.findAllByCreatedByWithUsers(user);
     for (Community c : createdCommunities) {
       c.setCreatedBy(null);
-      c.getCommunityUsers().removeIf(cu -> cu.getUser().getId().equals(user.getId()));
+      removeMemberships(c, user);
       communityRepository.save(c);
     }
 
     List<Community> pendingIn = communityRepository.findAllWithPendingUser(user);
     for (Community c : pendingIn) {
-      c.getPendingRequests().remove(user);
+      if (c.getPendingRequests().remove(user)) {
+        communityCounterService.requestRemoved(c);
+      }
       communityRepository.save(c);
     }
 
     List<Community> memberIn = communityRepository.findAllWhereUserIsMember(user);
     for (Community c : memberIn) {
-      c.getCommunityUsers().removeIf(cu -> cu.getUser().getId().equals(user.getId()));
+      removeMemberships(c, user);
       communityRepository.save(c);
     }
   }
 
+  private void removeMemberships(Community c, User user) {
+    List<CommunityUser> removed = c.getCommunityUsers().stream()
+      .filter(cu -> cu.getUser().getId().equals(user.getId()))
+      .toList();
+    removed.forEach(c.getCommunityUsers()::remove);
+    removed.forEach(cu -> communityCounterService.memberRemoved(c, cu));
+  }
+
   private void removeUserFromGroups(User user) {
     List<LocalGroup> createdGroups = localGroupRepository.findAllByCreatedBy(user);
     for (LocalGroup g : createdGroups) {
@@ -300,6 +323,7 @@ public class ProfileService implements IProfileService {
 
     user.setPassword(encoder.encode(next));
     user.setPasswordVersion(Optional.ofNullable(user.getPasswordVersion()).orElse(0) + 1);
+    userSnapshotCache.invalidate(user.getEmail());
   }
 
 }
@@ -0,0 +1,82 @@
+package org.spacehub.service.Profile;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.spacehub.repository.User.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+
+@Component
+public class UserProfileCache {
+
+  public record ProfileSummary(String username, String avatarKey) {
+    private static final ProfileSummary UNKNOWN = new ProfileSummary(null, null);
+  }
+
+  private final UserRepository userRepository;
+  private final Cache<String, ProfileSummary> cache;
+
+  public UserProfileCache(UserRepository userRepository,
+                          @Value("${user.profile-cache.max-size:10000}") long maxSize,
+                          @Value("${user.profile-cache.ttl:10m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+    this.userRepository = userRepository;
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttl)
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "userProfileSummary");
+  }
+
+  public ProfileSummary get(String email) {
+    if (email == null || email.isBlank()) return ProfileSummary.UNKNOWN;
+    ProfileSummary summary = cache.get(normalize(email), this::load);
+    return summary == null ? ProfileSummary.UNKNOWN : summary;
+  }
+
+  public String getUsername(String email) {
+    return get(email).username();
+  }
+
+  public String getAvatarKey(String email) {
+    return get(email).avatarKey();
+  }
+
+  public void invalidate(String email) {
+    if (email == null) return;
+    String key = normalize(email);
+    cache.invalidate(key);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          cache.invalidate(key);
+        }
+      });
+    }
+  }
+
+  private ProfileSummary load(String email) {
+    try {
+      return userRepository.findByEmail(email)
+        .map(u -> new ProfileSummary(u.getUsername(), u.getAvatarUrl()))
+        .orElse(null);
+    }
+    catch (Exception e) {
+      return null;
+    }
+  }
+
+  private String normalize(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
+}
@@ -1,40 +1,284 @@
 package org.spacehub.service.RateLimit;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.distributed.proxy.ProxyManager;
 import io.github.bucket4j.redis.redisson.Bucket4jRedisson;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.spacehub.service.Interface.IRateLimitService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
+
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongUnaryOperator;
 
 @Service
 public class RateLimitService implements IRateLimitService {
 
+  private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+  private static final String KEY_PREFIX = "rate-limit:";
+
+  private record Policy(String pattern, long capacity, Duration period, long leaseSize) {
+
+    BucketConfiguration configuration() {
+      return BucketConfiguration.builder().addLimit(bandwidth()).build();
+    }
+
+    Bandwidth bandwidth() {
+      return Bandwidth.builder().capacity(capacity).refillGreedy(capacity, period).build();
+    }
+
+    long refillNanos() {
+      return Math.max(1, period.toNanos() / capacity);
+    }
+  }
+
+  private enum Outcome { LOCAL, LEASED, REJECTED, UNAVAILABLE }
+
   private final ProxyManager<String> proxyManager;
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+  private final Policy defaultPolicy;
+  private final List<Policy> routePolicies;
+  private final long leaseTtlNanos;
+  private final long redisRetryNanos;
+  private final Cache<String, Lease> leases;
+  private final Cache<String, Bucket> fallbackBuckets;
+  private volatile long redisRetryAt = System.nanoTime();
+
+  private final Counter allowedLocal;
+  private final Counter allowedRemote;
+  private final Counter allowedFallback;
+  private final Counter rejected;
+  private final Counter redisFailures;
+  private final Timer localTimer;
+  private final Timer remoteTimer;
 
-  public RateLimitService(RedissonClient redissonClient) {
+  public RateLimitService(RedissonClient redissonClient,
+                          @Value("${rate-limit.default.capacity:120}") long defaultCapacity,
+                          @Value("${rate-limit.default.period:1m}") Duration defaultPeriod,
+                          @Value("${rate-limit.routes:}") String routes,
+                          @Value("${rate-limit.local-tier.enabled:true}") boolean localTierEnabled,
+                          @Value("${rate-limit.lease-fraction:0.05}") double leaseFraction,
+                          @Value("${rate-limit.lease-ttl:1s}") Duration leaseTtl,
+                          @Value("${rate-limit.redis-retry:5s}") Duration redisRetry,
+                          @Value("${rate-limit.max-keys:100000}") long maxKeys,
+                          MeterRegistry meterRegistry) {
     this.proxyManager = Bucket4jRedisson
       .casBasedBuilder(((Redisson) redissonClient).getCommandExecutor())
       .build();
+
+    double fraction = localTierEnabled ? Math.min(1.0, Math.max(0.0, leaseFraction)) : 0.0;
+    this.defaultPolicy = policy("/**", defaultCapacity, defaultPeriod, fraction);
+    this.routePolicies = parseRoutes(routes, fraction);
+    this.leaseTtlNanos = leaseTtl.toNanos();
+    this.redisRetryNanos = redisRetry.toNanos();
+    this.leases = Caffeine.newBuilder()
+      .maximumSize(maxKeys)
+      .expireAfterAccess(Duration.ofMinutes(10))
+      .build();
+    this.fallbackBuckets = Caffeine.newBuilder()
+      .maximumSize(maxKeys)
+      .expireAfterAccess(Duration.ofMinutes(10))
+      .build();
+
+    this.allowedLocal = Counter.builder("rate.limit.decisions")
+      .tag("result", "allowed").tag("tier", "local").register(meterRegistry);
+    this.allowedRemote = Counter.builder("rate.limit.decisions")
+      .tag("result", "allowed").tag("tier", "remote").register(meterRegistry);
+    this.allowedFallback = Counter.builder("rate.limit.decisions")
+      .tag("result", "allowed").tag("tier", "fallback").register(meterRegistry);
+    this.rejected = Counter.builder("rate.limit.decisions")
+      .tag("result", "rejected").tag("tier", "any").register(meterRegistry);
+    this.redisFailures = Counter.builder("rate.limit.redis.failures").register(meterRegistry);
+    this.localTimer = Timer.builder("rate.limit.check").tag("tier", "local").register(meterRegistry);
+    this.remoteTimer = Timer.builder("rate.limit.check").tag("tier", "remote").register(meterRegistry);
   }
 
   public boolean tryConsume(String key) {
-    Bucket bucket = proxyManager.getProxy(key, this::createNewBucketConfig);
-    return bucket.tryConsume(1);
+    return consume(defaultPolicy, key);
   }
 
-  private BucketConfiguration createNewBucketConfig() {
-    Bandwidth limit = Bandwidth.builder()
-      .capacity(120)
-      .refillGreedy(120, Duration.ofMinutes(1))
-      .build();
+  public boolean tryConsume(String path, String identity) {
+    return consume(policyFor(path), identity);
+  }
 
-    return BucketConfiguration.builder()
-      .addLimit(limit)
-      .build();
+  private boolean consume(Policy policy, String identity) {
+    String key = KEY_PREFIX + policy.pattern() + ":" + identity;
+
+    if (redisAvailable()) {
+      long start = System.nanoTime();
+      try {
+        Outcome outcome = leases.get(key, k -> new Lease())
+          .take(policy, leaseTtlNanos, size -> lease(policy, key, size), this::redisAvailable);
+        if (outcome != Outcome.UNAVAILABLE) {
+          (outcome == Outcome.LOCAL ? localTimer : remoteTimer)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          switch (outcome) {
+            case LOCAL -> allowedLocal.increment();
+            case LEASED -> allowedRemote.increment();
+            default -> rejected.increment();
+          }
+          return outcome != Outcome.REJECTED;
+        }
+      }
+      catch (Exception e) {
+        redisUnavailable(e instanceof CompletionException && e.getCause() instanceof Exception cause ? cause : e);
+      }
+    }
+
+    boolean allowed = fallbackBuckets.get(key, k -> Bucket.builder().addLimit(policy.bandwidth()).build())
+      .tryConsume(1);
+    (allowed ? allowedFallback : rejected).increment();
+    return allowed;
   }
+
+  private boolean redisAvailable() {
+    return System.nanoTime() - redisRetryAt >= 0;
+  }
+
+  private long lease(Policy policy, String key, long size) {
+    Bucket bucket = proxyManager.getProxy(key, policy::configuration);
+    return bucket.tryConsumeAsMuchAsPossible(size);
+  }
+
+  // While Redis is unreachable every node enforces the full limit on its own, so the effective limit is
+  // multiplied by the node count until the shared bucket is reachable again.
+  private void redisUnavailable(Exception e) {
+    redisFailures.increment();
+    boolean wasAvailable = redisAvailable();
+    redisRetryAt = System.nanoTime() + redisRetryNanos;
+    if (wasAvailable) {
+      logger.warn("Rate limit store unavailable, enforcing limits per node for the next {} ms",
+        TimeUnit.NANOSECONDS.toMillis(redisRetryNanos), e);
+    }
+  }
+
+  private Policy policyFor(String path) {
+    if (path != null) {
+      for (Policy policy : routePolicies) {
+        if (pathMatcher.match(policy.pattern(), path)) return policy;
+      }
+    }
+    return defaultPolicy;
+  }
+
+  // rate-limit.routes is a comma separated list of pattern=capacity/period, e.g. /api/v1/auth/**=20/1m.
+  private List<Policy> parseRoutes(String routes, double leaseFraction) {
+    List<Policy> policies = new ArrayList<>();
+    if (routes == null || routes.isBlank()) return policies;
+    for (String entry : routes.split(",")) {
+      String trimmed = entry.trim();
+      if (trimmed.isEmpty()) continue;
+      try {
+        int eq = trimmed.lastIndexOf('=');
+        int slash = trimmed.indexOf('/', eq);
+        String pattern = trimmed.substring(0, eq).trim();
+        long capacity = Long.parseLong(trimmed.substring(eq + 1, slash).trim());
+        Duration period = DurationStyle.detectAndParse(trimmed.substring(slash + 1).trim());
+        policies.add(policy(pattern, capacity, period, leaseFraction));
+      }
+      catch (RuntimeException e) {
+        throw new IllegalArgumentException("Invalid rate-limit.routes entry: " + trimmed, e);
+      }
+    }
+    return policies;
+  }
+
+  private static Policy policy(String pattern, long capacity, Duration period, double leaseFraction) {
+    long safeCapacity = Math.max(1, capacity);
+    long leaseSize = Math.max(1, Math.min(safeCapacity, Math.round(safeCapacity * leaseFraction)));
+    return new Policy(pattern, safeCapacity, period, leaseSize);
+  }
+
+  // Tokens leased from the shared bucket are spent locally until they run out or the lease lapses, so only
+  // about one request in leaseSize reaches Redis. After a refusal the key is denied locally for one refill
+  // interval instead of asking Redis again on every request. The remote call is made outside the monitor by
+  // a single caller per key; concurrent callers wait for its result and then re-check the local tokens.
+  private static final class Lease {
+
+    private long tokens;
+    private long expiresAt = System.nanoTime();
+    private long blockedUntil = expiresAt;
+    private CompletableFuture<Long> refill;
+
+    Outcome take(Policy policy, long ttlNanos, LongUnaryOperator lease, BooleanSupplier remoteAvailable) {
+      while (true) {
+        CompletableFuture<Long> pending;
+        boolean leader = false;
+        synchronized (this) {
+          long now = System.nanoTime();
+          if (tokens > 0 && now - expiresAt < 0) {
+            tokens--;
+            return Outcome.LOCAL;
+          }
+          if (now - blockedUntil < 0) {
+            return Outcome.REJECTED;
+          }
+          if (refill == null) {
+            if (!remoteAvailable.getAsBoolean()) return Outcome.UNAVAILABLE;
+            refill = new CompletableFuture<>();
+            leader = true;
+          }
+          pending = refill;
+        }
+
+        if (!leader) {
+          pending.join();
+          continue;
+        }
+        return refill(policy, ttlNanos, lease, pending);
+      }
+    }
+
+    private Outcome refill(Policy policy, long ttlNanos, LongUnaryOperator lease, CompletableFuture<Long> pending) {
+      long granted;
+      try {
+        granted = lease.applyAsLong(policy.leaseSize());
+      }
+      catch (RuntimeException e) {
+        synchronized (this) {
+          refill = null;
+        }
+        pending.completeExceptionally(e);
+        throw e;
+      }
+
+      Outcome outcome;
+      synchronized (this) {
+        long now = System.nanoTime();
+        refill = null;
+        if (granted <= 0) {
+          tokens = 0;
+          blockedUntil = now + Math.min(policy.refillNanos(), ttlNanos);
+          outcome = Outcome.REJECTED;
+        }
+        else {
+          tokens = granted - 1;
+          expiresAt = now + ttlNanos;
+          outcome = Outcome.LEASED;
+        }
+      }
+      pending.complete(granted);
+      return outcome;
+    }
+  }
+
 }
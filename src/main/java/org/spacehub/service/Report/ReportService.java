@@ -125,31 +125,28 @@ public class ReportService implements IReportService {
   private void notifyUsers(Set<User> users, String reporter, UUID reportId,
                            String chatRoomCode, Community community, boolean isOwner) {
 
-    for (User user : users) {
-      if (user == null || user.getEmail() == null)
-          continue;
-
-      if (!isOwner && user.getEmail().equalsIgnoreCase(reporter))
-          continue;
-
-      NotificationRequestDTO dto = NotificationRequestDTO.builder()
-              .email(user.getEmail())
-              .senderEmail(reporter)
-              .type(NotificationType.SYSTEM_UPDATE)
-              .title(isOwner ? "Message reported in your workspace" : "ChatRoom message reported")
-              .message(isOwner ?
-                      "A message in chat room `" + chatRoomCode + "` was reported by " + reporter +
-                        ". Please review it."
-                      :
-                      "A message in chat room `" + chatRoomCode + "` was reported by " + reporter + ".")
-              .scope("community")
-              .referenceId(reportId)
-              .actionable(true)
-              .communityId(community.getId())
-              .build();
-
-      notificationService.createNotification(dto);
-    }
+    List<String> recipients = users.stream()
+            .filter(user -> user != null && user.getEmail() != null)
+            .map(User::getEmail)
+            .filter(email -> isOwner || !email.equalsIgnoreCase(reporter))
+            .toList();
+
+    NotificationRequestDTO template = NotificationRequestDTO.builder()
+            .senderEmail(reporter)
+            .type(NotificationType.SYSTEM_UPDATE)
+            .title(isOwner ? "Message reported in your workspace" : "ChatRoom message reported")
+            .message(isOwner ?
+                    "A message in chat room `" + chatRoomCode + "` was reported by " + reporter +
+                      ". Please review it."
+                    :
+                    "A message in chat room `" + chatRoomCode + "` was reported by " + reporter + ".")
+            .scope("community")
+            .referenceId(reportId)
+            .actionable(true)
+            .communityId(community.getId())
+            .build();
+
+    notificationService.createNotificationForAll(template, recipients);
   }
 
 }
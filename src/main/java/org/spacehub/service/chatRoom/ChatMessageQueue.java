@@ -1,29 +1,124 @@
 package org.spacehub.service.chatRoom;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
 import org.spacehub.entities.ChatRoom.ChatMessage;
 import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
 import org.spacehub.handler.ChatWebSocketHandler;
+import org.spacehub.repository.ChatRoom.ChatRoomRepository;
+import org.spacehub.repository.ChatRoom.NewChatRoomRepository;
+import org.spacehub.service.journal.WriteAheadJournal;
 import org.spacehub.service.chatRoom.chatroomInterfaces.IChatMessageQueue;
+import org.spacehub.service.queue.FlushPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Service
-@RequiredArgsConstructor
 public class ChatMessageQueue implements IChatMessageQueue {
 
-  private final Map<String, List<ChatMessage>> pendingByRoom = new ConcurrentHashMap<>();
+  private static final Logger logger = LoggerFactory.getLogger(ChatMessageQueue.class);
+
+  private final Map<String, RoomBuffer> pendingByRoom = new ConcurrentHashMap<>();
+  private final Map<String, ChatMessage> pendingByUuid = new ConcurrentHashMap<>();
 
   private final ChatMessageService chatMessageService;
+  private final ChatRoomHistoryCache historyCache;
+  private final WriteAheadJournal journal;
+  private final WriteAheadJournal deadLetters;
+  private final ObjectMapper objectMapper;
+  private final NewChatRoomRepository newChatRoomRepository;
+  private final ChatRoomRepository chatRoomRepository;
+  private final FlushPolicy flushPolicy;
+  private final ExecutorService[] flushWorkers;
+  private final AtomicLongArray pendingByShard;
+  private final Counter deadLettered;
+  private final int maxAttempts;
   private ChatWebSocketHandler chatWebSocketHandler;
+  private volatile boolean shuttingDown;
+
+  private static final int MESSAGE_OVERHEAD_BYTES = 160;
+  private static final int MAX_HISTORY_PAGE_SIZE = 200;
+
+  static final Comparator<ChatMessage> OLDEST_FIRST = Comparator
+          .comparingLong(ChatMessage::getTimestamp)
+          .thenComparingLong(ChatMessageQueue::cursorId)
+          .thenComparing(ChatMessage::getMessageUuid, Comparator.nullsFirst(Comparator.naturalOrder()));
+  private static final Comparator<ChatMessage> NEWEST_FIRST = OLDEST_FIRST.reversed();
+
+  public ChatMessageQueue(ChatMessageService chatMessageService,
+                          ChatRoomHistoryCache historyCache,
+                          @Qualifier("chatMessageJournal") WriteAheadJournal journal,
+                          @Qualifier("chatDeadLetterJournal") WriteAheadJournal deadLetters,
+                          ObjectMapper objectMapper,
+                          NewChatRoomRepository newChatRoomRepository,
+                          ChatRoomRepository chatRoomRepository,
+                          @Qualifier("chatFlushPolicy") FlushPolicy flushPolicy,
+                          @Value("${chat.queue.shards:0}") int shards,
+                          @Value("${chat.queue.flush.max-attempts:5}") int maxAttempts,
+                          MeterRegistry meterRegistry) {
+    this.chatMessageService = chatMessageService;
+    this.historyCache = historyCache;
+    this.journal = journal;
+    this.deadLetters = deadLetters;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.objectMapper = objectMapper;
+    this.newChatRoomRepository = newChatRoomRepository;
+    this.chatRoomRepository = chatRoomRepository;
+    this.flushPolicy = flushPolicy;
+    this.deadLettered = Counter.builder("chat.queue.dead.lettered").register(meterRegistry);
+    Gauge.builder("chat.queue.pending", pendingByUuid, Map::size).register(meterRegistry);
+    Gauge.builder("chat.journal.live", journal, WriteAheadJournal::liveEntries).register(meterRegistry);
+    Gauge.builder("chat.queue.oldest.age", this, ChatMessageQueue::oldestPendingAgeMillis)
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
 
-  private static final int FLUSH_BATCH_SIZE = 10;
+    int count = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    this.flushWorkers = new ExecutorService[count];
+    for (int i = 0; i < count; i++) {
+      String name = "chat-flush-" + i;
+      flushWorkers[i] = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    // Rooms come and go, so depth is reported per flush shard to keep the tag set fixed.
+    this.pendingByShard = new AtomicLongArray(count);
+    for (int i = 0; i < count; i++) {
+      int shard = i;
+      Gauge.builder("chat.queue.pending.shard", pendingByShard, depths -> depths.get(shard))
+              .tag("shard", Integer.toString(shard))
+              .register(meterRegistry);
+    }
+  }
 
   @Autowired
   @Lazy
@@ -31,45 +126,252 @@ public class ChatMessageQueue implements IChatMessageQueue {
     this.chatWebSocketHandler = handler;
   }
 
-  public synchronized void enqueue(ChatMessage message) {
-    pendingByRoom.computeIfAbsent(message.getRoomCode(), k -> Collections.synchronizedList(new ArrayList<>()))
-            .add(message);
+  @PostConstruct
+  public void recoverJournal() {
+    int parked = deadLetters.recover().size();
+    if (parked > 0) logger.warn("{} dead-lettered chat messages are waiting for review", parked);
+
+    List<JournaledChatMessage> entries = new ArrayList<>();
+    for (byte[] payload : journal.recover()) {
+      try {
+        entries.add(objectMapper.readValue(payload, JournaledChatMessage.class));
+      }
+      catch (Exception e) {
+        logger.error("Unable to read journaled chat message", e);
+      }
+    }
+    entries.sort(Comparator.comparing(JournaledChatMessage::timestamp,
+            Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    for (JournaledChatMessage entry : entries) {
+      try {
+        if (chatMessageService.findByUuid(entry.messageUuid()).isPresent()) {
+          journal.complete(entry.messageUuid());
+          continue;
+        }
+        ChatMessage message = entry.toMessage();
+        UUID roomUuid = UUID.fromString(entry.roomCode());
+        if (entry.legacyRoom()) {
+          chatRoomRepository.findByRoomCode(roomUuid).ifPresent(message::setRoom);
+        } else {
+          newChatRoomRepository.findByRoomCode(roomUuid).ifPresent(message::setNewChatRoom);
+        }
+        if (message.getRoom() == null && message.getNewChatRoom() == null) {
+          logger.warn("Dropping journaled message {} for missing room {}", entry.messageUuid(), entry.roomCode());
+          journal.complete(entry.messageUuid());
+          continue;
+        }
+        buffer(message);
+      }
+      catch (Exception e) {
+        logger.error("Unable to replay journaled chat message", e);
+      }
+    }
+  }
+
+  public void enqueue(ChatMessage message) {
+    if (message.getMessageUuid() == null) message.setMessageUuid(UUID.randomUUID().toString());
+    try {
+      journal.append(message.getMessageUuid(), objectMapper.writeValueAsBytes(JournaledChatMessage.of(message)));
+    }
+    catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to journal chat message " + message.getMessageUuid(), e);
+    }
+    buffer(message);
+  }
+
+  private void buffer(ChatMessage message) {
+    String roomCode = message.getRoomCode();
+    pendingByUuid.put(message.getMessageUuid(), message);
+    RoomBuffer buffer = pendingByRoom.compute(roomCode, (k, existing) -> {
+      RoomBuffer b = existing == null ? new RoomBuffer() : existing;
+      b.add(message);
+      return b;
+    });
+    historyCache.append(message);
+
+    if (isDue(buffer, System.currentTimeMillis())) {
+      scheduleFlush(roomCode, buffer);
+    }
+  }
 
-    List<ChatMessage> list = pendingByRoom.get(message.getRoomCode());
-    if (list != null && list.size() >= FLUSH_BATCH_SIZE) {
-      flushRoom(message.getRoomCode());
+  @Scheduled(fixedDelayString = "${chat.queue.flush.tick-ms:200}")
+  public void flushQueue() {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, RoomBuffer> entry : pendingByRoom.entrySet()) {
+      if (isDue(entry.getValue(), now)) {
+        scheduleFlush(entry.getKey(), entry.getValue());
+      }
     }
   }
 
   @Scheduled(fixedRate = 10000)
-  public synchronized void flushQueue() {
-    Set<String> rooms = new HashSet<>(pendingByRoom.keySet());
-    for (String roomCode : rooms) {
-      flushRoom(roomCode);
+  public void refreshPending() {
+    for (String roomCode : pendingByRoom.keySet()) {
+      pendingByRoom.computeIfPresent(roomCode, (k, b) -> b.isIdle() ? null : b);
+    }
+    long[] depths = new long[flushWorkers.length];
+    for (Map.Entry<String, RoomBuffer> entry : pendingByRoom.entrySet()) {
+      depths[shardOf(entry.getKey())] += entry.getValue().size.get();
+    }
+    for (int i = 0; i < depths.length; i++) {
+      pendingByShard.set(i, depths[i]);
+    }
+  }
+
+  private int shardOf(String roomCode) {
+    return Math.floorMod(roomCode.hashCode(), flushWorkers.length);
+  }
+
+  public int getPendingDepth(String roomCode) {
+    RoomBuffer buffer = pendingByRoom.get(roomCode);
+    return buffer == null ? 0 : buffer.size.get() + buffer.inFlight.size();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    shuttingDown = true;
+    for (ExecutorService worker : flushWorkers) {
+      worker.shutdown();
+    }
+    for (ExecutorService worker : flushWorkers) {
+      try {
+        if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+          logger.warn("Chat flush worker did not finish before shutdown");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // Workers are stopped, so nothing else touches the buffers; whatever is left is flushed once here and
+    // anything that still fails stays in the journal for the next start.
+    for (Map.Entry<String, RoomBuffer> entry : pendingByRoom.entrySet()) {
+      RoomBuffer buffer = entry.getValue();
+      while (buffer.size.get() > 0 && flushRoom(entry.getKey(), buffer)) {
+        // keep draining this room
+      }
+    }
+  }
+
+  private void scheduleFlush(String roomCode, RoomBuffer buffer) {
+    if (!buffer.flushScheduled.compareAndSet(false, true)) return;
+    ExecutorService worker = flushWorkers[shardOf(roomCode)];
+    try {
+      worker.execute(() -> flushRoom(roomCode, buffer));
+    } catch (RejectedExecutionException e) {
+      buffer.flushScheduled.set(false);
+      logger.debug("Flush for room {} rejected, left for the shutdown flush", roomCode);
     }
   }
 
-  private synchronized void flushRoom(String roomCode) {
-    List<ChatMessage> pending = pendingByRoom.getOrDefault(roomCode, Collections.emptyList());
-    if (pending.isEmpty()) return;
+  private boolean isDue(RoomBuffer buffer, long now) {
+    int size = buffer.size.get();
+    if (size == 0) return false;
+    long first = buffer.firstPendingAt.get();
+    long age = first == 0 ? 0 : now - first;
+    return shuttingDown || flushPolicy.shouldFlush(size, buffer.bytes.get(), age);
+  }
+
+  private long oldestPendingAgeMillis() {
+    long now = System.currentTimeMillis();
+    long oldest = 0;
+    for (RoomBuffer buffer : pendingByRoom.values()) {
+      long first = buffer.firstPendingAt.get();
+      if (first != 0 && buffer.size.get() > 0) oldest = Math.max(oldest, now - first);
+    }
+    return oldest;
+  }
+
+  private boolean flushRoom(String roomCode, RoomBuffer buffer) {
+    buffer.flushScheduled.set(false);
+    List<ChatMessage> batch = buffer.drain(flushPolicy.maxBatchSize());
+    if (batch.isEmpty()) return false;
+
+    long batchBytes = 0;
+    for (ChatMessage m : batch) batchBytes += estimateBytes(m);
+    long started = System.nanoTime();
+    try {
+      List<ChatMessage> persisted = chatMessageService.saveAll(batch);
+      flushPolicy.recordFlush(batch.size(), batchBytes, System.nanoTime() - started, true);
+      historyCache.replace(roomCode, persisted);
+      for (ChatMessage m : batch) pendingByUuid.remove(m.getMessageUuid(), m);
+      buffer.persisted(batch);
+      for (ChatMessage m : batch) journal.complete(m.getMessageUuid());
+    }
+    catch (Exception e) {
+      flushPolicy.recordFlush(batch.size(), batchBytes, System.nanoTime() - started, false);
+      if (batch.size() == 1 && countsAsAttempt(e) && buffer.recordAttempt(batch.get(0)) >= maxAttempts) {
+        return deadLetter(roomCode, buffer, batch.get(0), e);
+      }
+      logger.warn("Failed to persist {} chat messages for room {}, re-queueing", batch.size(), roomCode, e);
+      for (ChatMessage dropped : buffer.requeue(batch)) journal.complete(dropped.getMessageUuid());
+      return false;
+    }
+
+    Set<String> tombstones = buffer.takeTombstones();
+    for (String messageUuid : tombstones) {
+      try {
+        chatMessageService.deleteMessageByUuid(messageUuid);
+      } catch (Exception e) {
+        logger.warn("Failed to delete message {} removed during flush", messageUuid, e);
+      }
+    }
+    if (!tombstones.isEmpty()) historyCache.changed(roomCode);
 
-    List<ChatMessage> batch = new ArrayList<>(pending);
-    pending.clear();
-    pendingByRoom.remove(roomCode);
+    if (!shuttingDown && isDue(buffer, System.currentTimeMillis())) {
+      scheduleFlush(roomCode, buffer);
+    }
+    return true;
+  }
 
+  // A row that keeps failing on its own is parked in the dead-letter journal so it stops blocking the rooms
+  // behind it and is not replayed on every restart. If parking fails it stays queued for another attempt.
+  private boolean deadLetter(String roomCode, RoomBuffer buffer, ChatMessage message, Exception cause) {
+    String messageUuid = message.getMessageUuid();
     try {
-      chatMessageService.saveAll(batch);
+      deadLetters.append(messageUuid, objectMapper.writeValueAsBytes(JournaledChatMessage.of(message)));
     }
     catch (Exception e) {
-      pendingByRoom.computeIfAbsent(roomCode, k -> Collections.synchronizedList(new ArrayList<>())).addAll(batch);
+      logger.error("Unable to dead-letter chat message {} for room {}", messageUuid, roomCode, e);
+      buffer.requeue(List.of(message));
+      return false;
     }
+    logger.error("Dead-lettered chat message {} for room {} after {} failed attempts", messageUuid, roomCode,
+            maxAttempts, cause);
+    deadLettered.increment();
+    buffer.persisted(List.of(message));
+    buffer.tombstones.remove(messageUuid);
+    pendingByUuid.remove(messageUuid, message);
+    historyCache.remove(messageUuid);
+    journal.complete(messageUuid);
+    return true;
   }
 
-  public synchronized boolean deleteMessageByUuid(String messageUuid) {
-    boolean removedFromMemory = pendingByRoom.values().stream()
-            .anyMatch(list -> list.removeIf(m -> Objects.equals(m.getMessageUuid(), messageUuid)));
+  private static boolean countsAsAttempt(Exception e) {
+    return !(e instanceof TransientDataAccessException
+            || e instanceof DataAccessResourceFailureException
+            || e instanceof CannotCreateTransactionException);
+  }
 
+  public boolean deleteMessageByUuid(String messageUuid) {
+    boolean removedFromMemory = false;
+    ChatMessage pending = pendingByUuid.remove(messageUuid);
+    if (pending != null) {
+      RoomBuffer buffer = pendingByRoom.get(pending.getRoomCode());
+      if (buffer != null && buffer.removeQueued(messageUuid)) {
+        journal.complete(messageUuid);
+        removedFromMemory = true;
+      } else {
+        removedFromMemory = buffer != null && buffer.tombstoneInFlight(messageUuid);
+      }
+    }
+
+    String roomCode = pending != null ? pending.getRoomCode()
+            : chatMessageService.findByUuid(messageUuid).map(ChatMessage::getRoomCode).orElse(null);
     boolean removedFromDb = chatMessageService.deleteMessageByUuid(messageUuid);
+    historyCache.remove(messageUuid);
+    if (removedFromDb) historyCache.changed(roomCode);
 
     return removedFromMemory || removedFromDb;
   }
@@ -82,19 +384,257 @@ public class ChatMessageQueue implements IChatMessageQueue {
     List<ChatMessage> dbMessages = chatMessageService.getMessagesForNewChatRoom(newChatRoom);
 
     String roomCode = newChatRoom.getRoomCode().toString();
-    List<ChatMessage> pending = pendingByRoom.getOrDefault(roomCode, Collections.emptyList());
-
-    List<ChatMessage> combined = new ArrayList<>();
-    combined.addAll(dbMessages);
-    combined.addAll(new ArrayList<>(pending));
+    List<ChatMessage> combined = new ArrayList<>(dbMessages);
+    combined.addAll(pendingSnapshot(roomCode));
 
     combined.sort(Comparator.comparingLong(ChatMessage::getTimestamp));
     return combined;
   }
 
+  public ChatHistoryPage getHistoryPage(NewChatRoom newChatRoom, Long beforeTimestamp, Long beforeId,
+                                       String beforeUuid, int limit) {
+    int size = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+    String roomCode = newChatRoom.getRoomCode().toString();
+
+    if (beforeTimestamp != null) {
+      return toPage(collectNewestFirst(newChatRoom, beforeTimestamp, beforeId, beforeUuid, size + 1), size);
+    }
+
+    Optional<ChatHistoryPage> cached = historyCache.getLatest(roomCode, size);
+    if (cached.isPresent()) return cached.get();
+
+    historyCache.prepare(roomCode);
+    int loadSize = Math.max(size, historyCache.getRoomCapacity());
+    List<ChatMessage> loaded = collectNewestFirst(newChatRoom, null, null, null, loadSize + 1);
+    List<ChatMessage> tail = new ArrayList<>(loaded.subList(0, Math.min(loadSize, loaded.size())));
+    Collections.reverse(tail);
+    historyCache.seed(roomCode, tail, loaded.size() <= loadSize);
+
+    return toPage(loaded, size);
+  }
+
+  // Pending messages have no id yet and sort after every persisted row with the same timestamp, so the
+  // message uuid breaks the tie; a cursor ending on a pending message carries its uuid instead of an id.
+  // That message may be flushed before the next page is read, so the database side then orders
+  // same-timestamp rows by uuid as well rather than by an id the cursor never had.
+  private List<ChatMessage> collectNewestFirst(NewChatRoom newChatRoom, Long beforeTimestamp, Long beforeId,
+                                               String beforeUuid, int fetchSize) {
+    boolean latest = beforeTimestamp == null;
+    long cursorId = beforeId == null ? Long.MAX_VALUE : beforeId;
+
+    List<ChatMessage> dbMessages;
+    if (latest) {
+      dbMessages = chatMessageService.getLatestMessagesForNewChatRoom(newChatRoom, fetchSize);
+    }
+    else if (beforeId == null && beforeUuid != null) {
+      dbMessages = chatMessageService.getMessagesBeforeUuid(newChatRoom, beforeTimestamp, beforeUuid, fetchSize);
+    }
+    else {
+      dbMessages = chatMessageService.getMessagesBefore(newChatRoom, beforeTimestamp, cursorId, fetchSize);
+    }
+
+    Map<String, ChatMessage> byUuid = new LinkedHashMap<>();
+    for (ChatMessage m : dbMessages) {
+      byUuid.put(m.getMessageUuid(), m);
+    }
+
+    String roomCode = newChatRoom.getRoomCode().toString();
+    for (ChatMessage m : pendingSnapshot(roomCode)) {
+      if (latest || precedes(m, beforeTimestamp, cursorId, beforeUuid)) {
+        byUuid.putIfAbsent(m.getMessageUuid(), m);
+      }
+    }
+
+    List<ChatMessage> combined = new ArrayList<>(byUuid.values());
+    combined.sort(NEWEST_FIRST);
+    return combined;
+  }
+
+  private ChatHistoryPage toPage(List<ChatMessage> newestFirst, int size) {
+    boolean hasMore = newestFirst.size() > size;
+    List<ChatMessage> page = new ArrayList<>(newestFirst.subList(0, Math.min(size, newestFirst.size())));
+    Collections.reverse(page);
+
+    ChatMessage oldest = page.isEmpty() ? null : page.get(0);
+    return ChatHistoryPage.builder()
+            .messages(page)
+            .hasMore(hasMore)
+            .nextBeforeTimestamp(oldest == null ? null : oldest.getTimestamp())
+            .nextBeforeId(oldest == null ? null : oldest.getId())
+            .nextBeforeUuid(oldest == null ? null : oldest.getMessageUuid())
+            .build();
+  }
+
+  private static boolean precedes(ChatMessage m, long timestamp, long cursorId, String uuid) {
+    int c = Long.compare(m.getTimestamp(), timestamp);
+    if (c == 0) c = Long.compare(cursorId(m), cursorId);
+    if (c == 0) {
+      if (uuid == null || m.getMessageUuid() == null) return false;
+      c = m.getMessageUuid().compareTo(uuid);
+    }
+    return c < 0;
+  }
+
+  private static long estimateBytes(ChatMessage m) {
+    return MESSAGE_OVERHEAD_BYTES + 2L * (length(m.getMessage()) + length(m.getFileName())
+            + length(m.getFileUrl()) + length(m.getContentType()) + length(m.getSenderEmail()));
+  }
+
+  private static int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+
+  private static long cursorId(ChatMessage message) {
+    return message.getId() == null ? Long.MAX_VALUE : message.getId();
+  }
+
+  private List<ChatMessage> pendingSnapshot(String roomCode) {
+    RoomBuffer buffer = pendingByRoom.get(roomCode);
+    return buffer == null ? Collections.emptyList() : buffer.snapshot();
+  }
+
   public boolean isPending(String messageUuid) {
-    return pendingByRoom.values().stream().anyMatch(list -> list.stream()
-            .anyMatch(m -> Objects.equals(m.getMessageUuid(), messageUuid)));
+    return messageUuid != null && pendingByUuid.containsKey(messageUuid);
+  }
+
+  private record JournaledChatMessage(String messageUuid, String senderEmail, String message, Long timestamp,
+                                      String fileName, String fileUrl, String contentType, String roomCode,
+                                      String type, boolean legacyRoom) {
+
+    static JournaledChatMessage of(ChatMessage m) {
+      return new JournaledChatMessage(m.getMessageUuid(), m.getSenderEmail(), m.getMessage(), m.getTimestamp(),
+              m.getFileName(), m.getFileUrl(), m.getContentType(), m.getRoomCode(), m.getType(),
+              m.getNewChatRoom() == null && m.getRoom() != null);
+    }
+
+    ChatMessage toMessage() {
+      return ChatMessage.builder()
+              .messageUuid(messageUuid)
+              .senderEmail(senderEmail)
+              .message(message)
+              .timestamp(timestamp)
+              .fileName(fileName)
+              .fileUrl(fileUrl)
+              .contentType(contentType)
+              .roomCode(roomCode)
+              .type(type == null ? "MESSAGE" : type)
+              .build();
+    }
+  }
+
+  private static final class RoomBuffer {
+    private final Deque<ChatMessage> messages = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong firstPendingAt = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Set<String> tombstones = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    private volatile List<ChatMessage> inFlight = List.of();
+    private volatile int batchLimit = Integer.MAX_VALUE;
+
+    void add(ChatMessage message) {
+      messages.add(message);
+      bytes.addAndGet(estimateBytes(message));
+      size.incrementAndGet();
+      firstPendingAt.compareAndSet(0, System.currentTimeMillis());
+    }
+
+    List<ChatMessage> drain(int max) {
+      max = Math.min(max, batchLimit);
+      firstPendingAt.set(0);
+      List<ChatMessage> batch = new ArrayList<>(Math.min(max, size.get()));
+      for (ChatMessage m : messages) {
+        if (batch.size() >= max) break;
+        batch.add(m);
+      }
+      inFlight = List.copyOf(batch);
+      List<ChatMessage> kept = new ArrayList<>(batch.size());
+      for (ChatMessage m : batch) {
+        if (messages.remove(m)) {
+          taken(m);
+          kept.add(m);
+        }
+      }
+      inFlight = List.copyOf(kept);
+      if (!messages.isEmpty()) firstPendingAt.compareAndSet(0, System.currentTimeMillis());
+      return kept;
+    }
+
+    private void taken(ChatMessage message) {
+      size.decrementAndGet();
+      bytes.addAndGet(-estimateBytes(message));
+    }
+
+    // Failed batches go back to the head in their original order, and the next drains shrink until the
+    // failing row is flushed on its own; a successful flush grows the limit back.
+    List<ChatMessage> requeue(List<ChatMessage> batch) {
+      List<ChatMessage> dropped = new ArrayList<>();
+      ListIterator<ChatMessage> it = batch.listIterator(batch.size());
+      while (it.hasPrevious()) {
+        ChatMessage m = it.previous();
+        if (tombstones.remove(m.getMessageUuid())) {
+          attempts.remove(m.getMessageUuid());
+          dropped.add(m);
+        } else {
+          messages.addFirst(m);
+          bytes.addAndGet(estimateBytes(m));
+          size.incrementAndGet();
+        }
+      }
+      firstPendingAt.compareAndSet(0, System.currentTimeMillis());
+      batchLimit = Math.max(1, batch.size() / 2);
+      inFlight = List.of();
+      return dropped;
+    }
+
+    void persisted(List<ChatMessage> batch) {
+      for (ChatMessage m : batch) attempts.remove(m.getMessageUuid());
+      if (batchLimit < Integer.MAX_VALUE) batchLimit = (int) Math.min(Integer.MAX_VALUE, 2L * batchLimit);
+      inFlight = List.of();
+    }
+
+    int recordAttempt(ChatMessage message) {
+      return attempts.merge(message.getMessageUuid(), 1, Integer::sum);
+    }
+
+    boolean removeQueued(String messageUuid) {
+      for (ChatMessage m : messages) {
+        if (Objects.equals(m.getMessageUuid(), messageUuid) && messages.remove(m)) {
+          taken(m);
+          attempts.remove(messageUuid);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    boolean tombstoneInFlight(String messageUuid) {
+      for (ChatMessage m : inFlight) {
+        if (Objects.equals(m.getMessageUuid(), messageUuid)) {
+          tombstones.add(messageUuid);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    List<ChatMessage> snapshot() {
+      List<ChatMessage> copy = new ArrayList<>(inFlight);
+      copy.addAll(messages);
+      return copy;
+    }
+
+    Set<String> takeTombstones() {
+      if (tombstones.isEmpty()) return Set.of();
+      Set<String> taken = new HashSet<>(tombstones);
+      tombstones.removeAll(taken);
+      return taken;
+    }
+
+    boolean isIdle() {
+      return size.get() == 0 && inFlight.isEmpty() && !flushScheduled.get();
+    }
   }
 
 }
@@ -6,6 +6,7 @@ import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
 import org.spacehub.repository.ChatRoom.ChatMessageRepository;
 import org.spacehub.service.chatRoom.chatroomInterfaces.IChatMessageService;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,6 +33,22 @@ public class ChatMessageService implements IChatMessageService {
     return chatMessageRepository.findByNewChatRoomOrderByTimestampAsc(newChatRoom);
   }
 
+  public List<ChatMessage> getLatestMessagesForNewChatRoom(NewChatRoom newChatRoom, int limit) {
+    return chatMessageRepository.findLatestByNewChatRoom(newChatRoom, PageRequest.of(0, limit));
+  }
+
+  public List<ChatMessage> getMessagesBefore(NewChatRoom newChatRoom, long beforeTimestamp, long beforeId,
+                                             int limit) {
+    return chatMessageRepository.findByNewChatRoomBefore(newChatRoom, beforeTimestamp, beforeId,
+      PageRequest.of(0, limit));
+  }
+
+  public List<ChatMessage> getMessagesBeforeUuid(NewChatRoom newChatRoom, long beforeTimestamp, String beforeUuid,
+                                                 int limit) {
+    return chatMessageRepository.findByNewChatRoomBeforeUuid(newChatRoom, beforeTimestamp, beforeUuid,
+      PageRequest.of(0, limit));
+  }
+
   public Optional<ChatMessage> findById(Long id) {
     return chatMessageRepository.findById(id);
   }
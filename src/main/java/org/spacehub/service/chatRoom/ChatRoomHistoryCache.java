@@ -0,0 +1,339 @@
+package org.spacehub.service.chatRoom;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
+import org.spacehub.entities.ChatRoom.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ChatRoomHistoryCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ChatRoomHistoryCache.class);
+
+  private static final int MESSAGE_OVERHEAD_BYTES = 160;
+  private static final String INVALIDATION_TOPIC = "spacehub:chat:history:invalidate";
+
+  private final RedissonClient redissonClient;
+  private final boolean broadcast;
+  private final String nodeId = UUID.randomUUID().toString();
+  private final Set<String> changedRooms = ConcurrentHashMap.newKeySet();
+  private Integer listenerId;
+
+  private final int roomCapacity;
+  private final Shard[] shards;
+  private final Map<String, String> roomByUuid = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public ChatRoomHistoryCache(RedissonClient redissonClient,
+                              @Value("${chat.history-cache.room-capacity:200}") int roomCapacity,
+                              @Value("${chat.history-cache.max-bytes:67108864}") long maxBytes,
+                              @Value("${chat.history-cache.shards:16}") int shardCount,
+                              @Value("${chat.history-cache.broadcast:true}") boolean broadcast,
+                              MeterRegistry meterRegistry) {
+    this.redissonClient = redissonClient;
+    this.broadcast = broadcast;
+    this.roomCapacity = roomCapacity;
+    int count = Math.max(1, shardCount);
+    this.shards = new Shard[count];
+    for (int i = 0; i < count; i++) shards[i] = new Shard(Math.max(1, maxBytes / count));
+
+    FunctionCounter.builder("chat.history.cache.hits", hits, AtomicLong::get).register(meterRegistry);
+    FunctionCounter.builder("chat.history.cache.misses", misses, AtomicLong::get).register(meterRegistry);
+    FunctionCounter.builder("chat.history.cache.evictions", evictions, AtomicLong::get).register(meterRegistry);
+    Gauge.builder("chat.history.cache.rooms", this, ChatRoomHistoryCache::roomCount).register(meterRegistry);
+    Gauge.builder("chat.history.cache.bytes", this, ChatRoomHistoryCache::usedBytes).register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void subscribe() {
+    if (!broadcast) return;
+    try {
+      listenerId = topic().addListener(String.class, (channel, message) -> receive(message));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to subscribe to {}, chat history is invalidated locally only", INVALIDATION_TOPIC, e);
+    }
+  }
+
+  @PreDestroy
+  public void unsubscribe() {
+    if (listenerId == null) return;
+    try {
+      topic().removeListener(listenerId);
+    }
+    catch (Exception e) {
+      logger.warn("Unable to unsubscribe from {}", INVALIDATION_TOPIC, e);
+    }
+  }
+
+  public int getRoomCapacity() {
+    return roomCapacity;
+  }
+
+  public Optional<ChatHistoryPage> getLatest(String roomCode, int limit) {
+    return shardFor(roomCode).getLatest(roomCode, limit);
+  }
+
+  public void prepare(String roomCode) {
+    shardFor(roomCode).prepare(roomCode);
+  }
+
+  public void seed(String roomCode, List<ChatMessage> oldestFirst, boolean complete) {
+    shardFor(roomCode).seed(roomCode, oldestFirst, complete);
+  }
+
+  public void append(ChatMessage message) {
+    shardFor(message.getRoomCode()).append(message);
+  }
+
+  public void replace(String roomCode, Collection<ChatMessage> persisted) {
+    shardFor(roomCode).replace(roomCode, persisted);
+    changed(roomCode);
+  }
+
+  public void remove(String messageUuid) {
+    String roomCode = roomByUuid.get(messageUuid);
+    if (roomCode != null) shardFor(roomCode).remove(roomCode, messageUuid);
+  }
+
+  public void evictRoom(String roomCode) {
+    shardFor(roomCode).evictRoom(roomCode);
+    changed(roomCode);
+  }
+
+  // Other nodes only see messages once they are persisted, so flushes and deletes mark the room and the
+  // marks are published together on the next tick; receivers drop their tail and reload it on demand.
+  public void changed(String roomCode) {
+    if (broadcast && roomCode != null) changedRooms.add(roomCode);
+  }
+
+  @Scheduled(fixedDelayString = "${chat.history-cache.invalidation-tick-ms:100}")
+  public void publishChanges() {
+    if (changedRooms.isEmpty()) return;
+    List<String> rooms = new ArrayList<>(changedRooms);
+    changedRooms.removeAll(rooms);
+    try {
+      topic().publish(nodeId + "|" + String.join(",", rooms));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to broadcast chat history invalidation for {} rooms", rooms.size(), e);
+    }
+  }
+
+  private void receive(String message) {
+    int separator = message.indexOf('|');
+    if (separator < 0 || nodeId.equals(message.substring(0, separator))) return;
+    for (String roomCode : message.substring(separator + 1).split(",")) {
+      if (!roomCode.isEmpty()) shardFor(roomCode).evictRoom(roomCode);
+    }
+  }
+
+  private RTopic topic() {
+    return redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+  }
+
+  private Shard shardFor(String roomCode) {
+    return shards[Math.floorMod(roomCode.hashCode(), shards.length)];
+  }
+
+  private long estimateSize(ChatMessage m) {
+    return MESSAGE_OVERHEAD_BYTES + 2L * (length(m.getMessage()) + length(m.getMessageUuid())
+            + length(m.getSenderEmail()) + length(m.getFileName()) + length(m.getFileUrl())
+            + length(m.getContentType()) + length(m.getRoomCode()));
+  }
+
+  private int length(String value) {
+    return value == null ? 0 : value.length();
+  }
+
+  private int roomCount() {
+    int rooms = 0;
+    for (Shard shard : shards) rooms += shard.roomCount();
+    return rooms;
+  }
+
+  private long usedBytes() {
+    long bytes = 0;
+    for (Shard shard : shards) bytes += shard.usedBytes();
+    return bytes;
+  }
+
+  // Rooms are spread over independently locked shards, each with its own slice of the byte budget and its
+  // own LRU order, so appends to unrelated rooms never wait on each other.
+  private final class Shard {
+    private final long maxBytes;
+    private final LinkedHashMap<String, RoomTail> tails = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private Shard(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    synchronized Optional<ChatHistoryPage> getLatest(String roomCode, int limit) {
+      RoomTail tail = tails.get(roomCode);
+      if (tail == null || !tail.loaded || (tail.messages.size() < limit && !tail.complete)) {
+        misses.incrementAndGet();
+        return Optional.empty();
+      }
+      hits.incrementAndGet();
+
+      List<ChatMessage> all = new ArrayList<>(tail.messages);
+      List<ChatMessage> page = new ArrayList<>(all.subList(Math.max(0, all.size() - limit), all.size()));
+      ChatMessage oldest = page.isEmpty() ? null : page.get(0);
+      return Optional.of(ChatHistoryPage.builder()
+              .messages(page)
+              .hasMore(all.size() > limit || !tail.complete)
+              .nextBeforeTimestamp(oldest == null ? null : oldest.getTimestamp())
+              .nextBeforeId(oldest == null ? null : oldest.getId())
+              .nextBeforeUuid(oldest == null ? null : oldest.getMessageUuid())
+              .build());
+    }
+
+    synchronized void prepare(String roomCode) {
+      tails.computeIfAbsent(roomCode, k -> new RoomTail());
+    }
+
+    synchronized void seed(String roomCode, List<ChatMessage> oldestFirst, boolean complete) {
+      RoomTail tail = tails.get(roomCode);
+      if (tail == null) return;
+
+      Map<String, ChatMessage> merged = new LinkedHashMap<>();
+      for (ChatMessage m : oldestFirst) merged.put(m.getMessageUuid(), m);
+      for (ChatMessage m : tail.messages) merged.put(m.getMessageUuid(), m);
+
+      List<ChatMessage> ordered = new ArrayList<>(merged.values());
+      ordered.sort(ChatMessageQueue.OLDEST_FIRST);
+      clear(roomCode, tail);
+      for (ChatMessage m : ordered) add(roomCode, tail, m);
+      tail.loaded = true;
+      tail.complete = complete && tail.trimmed == 0;
+      evictIfOverBudget();
+    }
+
+    synchronized void append(ChatMessage message) {
+      RoomTail tail = tails.get(message.getRoomCode());
+      if (tail == null) return;
+      add(message.getRoomCode(), tail, message);
+      evictIfOverBudget();
+    }
+
+    synchronized void replace(String roomCode, Collection<ChatMessage> persisted) {
+      RoomTail tail = tails.get(roomCode);
+      if (tail == null || persisted == null || persisted.isEmpty()) return;
+
+      Map<String, ChatMessage> byUuid = new HashMap<>();
+      for (ChatMessage m : persisted) byUuid.put(m.getMessageUuid(), m);
+
+      Deque<ChatMessage> updated = new ArrayDeque<>(tail.messages.size());
+      for (ChatMessage m : tail.messages) updated.addLast(byUuid.getOrDefault(m.getMessageUuid(), m));
+      tail.messages.clear();
+      tail.messages.addAll(updated);
+    }
+
+    synchronized void remove(String roomCode, String messageUuid) {
+      if (!roomByUuid.remove(messageUuid, roomCode)) return;
+      RoomTail tail = tails.get(roomCode);
+      if (tail == null) return;
+      Iterator<ChatMessage> it = tail.messages.iterator();
+      while (it.hasNext()) {
+        ChatMessage m = it.next();
+        if (messageUuid.equals(m.getMessageUuid())) {
+          it.remove();
+          release(tail, m);
+          break;
+        }
+      }
+    }
+
+    synchronized void evictRoom(String roomCode) {
+      RoomTail tail = tails.remove(roomCode);
+      if (tail != null) clear(roomCode, tail);
+    }
+
+    synchronized int roomCount() {
+      return tails.size();
+    }
+
+    synchronized long usedBytes() {
+      return totalBytes;
+    }
+
+    private void add(String roomCode, RoomTail tail, ChatMessage message) {
+      long size = estimateSize(message);
+      tail.messages.addLast(message);
+      tail.bytes += size;
+      totalBytes += size;
+      roomByUuid.put(message.getMessageUuid(), roomCode);
+
+      while (tail.messages.size() > roomCapacity) {
+        ChatMessage dropped = tail.messages.removeFirst();
+        roomByUuid.remove(dropped.getMessageUuid(), roomCode);
+        release(tail, dropped);
+        tail.trimmed++;
+        tail.complete = false;
+      }
+    }
+
+    private void release(RoomTail tail, ChatMessage message) {
+      long size = estimateSize(message);
+      tail.bytes -= size;
+      totalBytes -= size;
+    }
+
+    private void clear(String roomCode, RoomTail tail) {
+      for (ChatMessage m : tail.messages) roomByUuid.remove(m.getMessageUuid(), roomCode);
+      totalBytes -= tail.bytes;
+      tail.bytes = 0;
+      tail.messages.clear();
+      tail.trimmed = 0;
+    }
+
+    private void evictIfOverBudget() {
+      Iterator<Map.Entry<String, RoomTail>> it = tails.entrySet().iterator();
+      while (totalBytes > maxBytes && it.hasNext()) {
+        Map.Entry<String, RoomTail> eldest = it.next();
+        it.remove();
+        clear(eldest.getKey(), eldest.getValue());
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  private static final class RoomTail {
+    private final Deque<ChatMessage> messages = new ArrayDeque<>();
+    private long bytes;
+    private int trimmed;
+    private boolean loaded;
+    private boolean complete;
+  }
+
+}
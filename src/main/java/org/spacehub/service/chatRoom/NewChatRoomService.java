@@ -1,15 +1,19 @@
 package org.spacehub.service.chatRoom;
 
 import lombok.RequiredArgsConstructor;
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
 import org.spacehub.entities.ApiResponse.ApiResponse;
+import org.spacehub.entities.ChatRoom.ChatMessage;
 import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
 import org.spacehub.repository.ChatRoom.ChatRoomRepository;
 import org.spacehub.repository.ChatRoom.NewChatRoomRepository;
+import org.spacehub.service.Profile.UserProfileCache;
 import org.spacehub.service.chatRoom.chatroomInterfaces.INewChatRoomService;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -22,6 +26,9 @@ public class NewChatRoomService implements INewChatRoomService {
 
   private final ChatRoomRepository chatRoomRepository;
   private final NewChatRoomRepository newChatRoomRepository;
+  private final ChatMessageQueue chatMessageQueue;
+  private final ChatRoomHistoryCache historyCache;
+  private final UserProfileCache userProfileCache;
 
   public ApiResponse<NewChatRoom> createNewChatRoom(String roomCode, String name) {
     Optional<ChatRoom> optionalChatRoom = chatRoomRepository.findByRoomCode(UUID.fromString(roomCode));
@@ -96,6 +103,52 @@ public class NewChatRoomService implements INewChatRoomService {
     }
   }
 
+  public ApiResponse<Map<String, Object>> getMessageHistory(String newChatRoomCode, Long beforeTimestamp,
+                                                           Long beforeId, String beforeUuid, int limit) {
+    try {
+      Optional<NewChatRoom> optionalNewRoom = newChatRoomRepository.findByRoomCode(UUID.fromString(newChatRoomCode));
+      if (optionalNewRoom.isEmpty()) {
+        return new ApiResponse<>(404, "NewChatRoom not found", null);
+      }
+
+      ChatHistoryPage page = chatMessageQueue.getHistoryPage(optionalNewRoom.get(), beforeTimestamp, beforeId,
+        beforeUuid, limit);
+
+      List<Map<String, Object>> messages = page.getMessages().stream().map(this::toHistoryEntry)
+        .collect(Collectors.toList());
+
+      Map<String, Object> out = new LinkedHashMap<>();
+      out.put("chatRoomCode", newChatRoomCode);
+      out.put("messages", messages);
+      out.put("hasMore", page.isHasMore());
+      out.put("nextBeforeTimestamp", page.getNextBeforeTimestamp());
+      out.put("nextBeforeId", page.getNextBeforeId());
+      out.put("nextBeforeUuid", page.getNextBeforeUuid());
+
+      return new ApiResponse<>(200, "Fetched chat history", out);
+    } catch (IllegalArgumentException e) {
+      return new ApiResponse<>(400, "Invalid UUID format for newChatRoomCode", null);
+    } catch (Exception e) {
+      return new ApiResponse<>(500, "Unexpected error: " + e.getMessage(), null);
+    }
+  }
+
+  private Map<String, Object> toHistoryEntry(ChatMessage message) {
+    Map<String, Object> m = new LinkedHashMap<>();
+    m.put("messageId", message.getId());
+    m.put("messageUuid", message.getMessageUuid());
+    m.put("type", message.getType());
+    m.put("senderEmail", message.getSenderEmail());
+    m.put("senderUsername", userProfileCache.getUsername(message.getSenderEmail()));
+    m.put("message", message.getMessage());
+    m.put("timestamp", message.getTimestamp());
+    m.put("fileName", message.getFileName());
+    m.put("fileUrl", message.getFileUrl());
+    m.put("contentType", message.getContentType());
+    m.put("optimistic", chatMessageQueue.isPending(message.getMessageUuid()));
+    return m;
+  }
+
   public ApiResponse<String> deleteNewChatRoom(String newChatRoomCode, String roomCode) {
     try {
       UUID roomUUID = UUID.fromString(roomCode);
@@ -117,6 +170,7 @@ public class NewChatRoomService implements INewChatRoomService {
       }
 
       newChatRoomRepository.delete(newChatRoom);
+      historyCache.evictRoom(newUUID.toString());
 
       return new ApiResponse<>(200, "NewChatRoom deleted successfully", null);
 
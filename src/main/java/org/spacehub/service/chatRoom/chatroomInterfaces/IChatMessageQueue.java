@@ -1,5 +1,6 @@
 package org.spacehub.service.chatRoom.chatroomInterfaces;
 
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
 import org.spacehub.entities.ChatRoom.ChatMessage;
 import org.spacehub.entities.ChatRoom.ChatRoom;
 import org.spacehub.entities.ChatRoom.NewChatRoom;
@@ -15,4 +16,7 @@ public interface IChatMessageQueue {
   List<ChatMessage> getMessagesForRoom(ChatRoom room);
 
   List<ChatMessage> getMessagesForNewChatRoom(NewChatRoom newChatRoom);
+
+  ChatHistoryPage getHistoryPage(NewChatRoom newChatRoom, Long beforeTimestamp, Long beforeId, String beforeUuid,
+                                 int limit);
 }
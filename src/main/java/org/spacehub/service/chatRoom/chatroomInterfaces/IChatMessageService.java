@@ -15,6 +15,12 @@ public interface IChatMessageService {
 
   List<ChatMessage> getMessagesForNewChatRoom(NewChatRoom newChatRoom);
 
+  List<ChatMessage> getLatestMessagesForNewChatRoom(NewChatRoom newChatRoom, int limit);
+
+  List<ChatMessage> getMessagesBefore(NewChatRoom newChatRoom, long beforeTimestamp, long beforeId, int limit);
+
+  List<ChatMessage> getMessagesBeforeUuid(NewChatRoom newChatRoom, long beforeTimestamp, String beforeUuid, int limit);
+
   Optional<ChatMessage> findById(Long id);
 
   Optional<ChatMessage> findByUuid(String messageUuid);
@@ -20,6 +20,9 @@ public interface INewChatRoomService {
 
   ApiResponse<List<Map<String, Object>>> getAllNewChatRoomsSummary(String roomCode);
 
+  ApiResponse<Map<String, Object>> getMessageHistory(String newChatRoomCode, Long beforeTimestamp, Long beforeId,
+                                                     String beforeUuid, int limit);
+
   ApiResponse<String> deleteNewChatRoom(String newChatRoomCode, String parentRoomCode);
 
 }
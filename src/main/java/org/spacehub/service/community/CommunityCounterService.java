@@ -0,0 +1,120 @@
+package org.spacehub.service.community;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.entities.Community.Community;
+import org.spacehub.entities.Community.CommunityUser;
+import org.spacehub.entities.Community.Role;
+import org.spacehub.repository.community.CommunityRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Service
+public class CommunityCounterService {
+
+  private static final Logger logger = LoggerFactory.getLogger(CommunityCounterService.class);
+
+  private static final Set<Role> MEMBER_ROLES = Set.of(Role.MEMBER, Role.ADMIN, Role.WORKSPACE_OWNER);
+  private static final Set<Role> ADMIN_ROLES = Set.of(Role.ADMIN, Role.WORKSPACE_OWNER);
+
+  private final CommunityRepository communityRepository;
+  private final int repairBatch;
+  private final Counter repaired;
+
+  public CommunityCounterService(CommunityRepository communityRepository,
+                                 @Value("${community.counters.repair-batch:500}") int repairBatch,
+                                 MeterRegistry meterRegistry) {
+    this.communityRepository = communityRepository;
+    this.repairBatch = Math.max(1, repairBatch);
+    this.repaired = Counter.builder("community.counters.repaired").register(meterRegistry);
+  }
+
+  public void memberAdded(Community community, CommunityUser member) {
+    adjust(community, active(member), admin(member), 0);
+  }
+
+  public void memberRemoved(Community community, CommunityUser member) {
+    adjust(community, -active(member), -admin(member), 0);
+  }
+
+  public void memberChanged(Community community, Role oldRole, boolean wasBanned, boolean wasBlocked,
+                            CommunityUser member) {
+    adjust(community,
+      active(member) - active(oldRole, wasBanned, wasBlocked),
+      admin(member) - admin(oldRole, wasBanned, wasBlocked), 0);
+  }
+
+  public void requestAdded(Community community) {
+    adjust(community, 0, 0, 1);
+  }
+
+  public void requestRemoved(Community community) {
+    adjust(community, 0, 0, -1);
+  }
+
+  // Deltas are applied in place by the database so concurrent joins and leaves never overwrite each other.
+  private void adjust(Community community, long activeDelta, long adminDelta, long pendingDelta) {
+    if (community == null || community.getId() == null) return;
+    if (activeDelta == 0 && adminDelta == 0 && pendingDelta == 0) return;
+    communityRepository.adjustMemberCounts(community.getId(), activeDelta, adminDelta, pendingDelta);
+  }
+
+  // The counter columns start at 0 when they are added, so they are reconciled once as soon as the
+  // application is up and then periodically to correct any drift.
+  @EventListener(ApplicationReadyEvent.class)
+  public void repairOnStartup() {
+    repair();
+  }
+
+  @Scheduled(fixedDelayString = "${community.counters.repair-ms:3600000}",
+             initialDelayString = "${community.counters.repair-ms:3600000}")
+  public void repair() {
+    List<String> memberRoles = MEMBER_ROLES.stream().map(Role::name).toList();
+    List<String> adminRoles = ADMIN_ROLES.stream().map(Role::name).toList();
+    UUID after = new UUID(0L, 0L);
+    long fixed = 0;
+    try {
+      while (true) {
+        List<UUID> ids = communityRepository.findIdsAfter(after, PageRequest.of(0, repairBatch));
+        if (ids.isEmpty()) break;
+        fixed += communityRepository.repairMemberCounts(ids, memberRoles, adminRoles);
+        if (ids.size() < repairBatch) break;
+        after = ids.get(ids.size() - 1);
+      }
+    }
+    catch (Exception e) {
+      logger.warn("Community counter repair stopped after fixing {} communities", fixed, e);
+    }
+    repaired.increment(fixed);
+    if (fixed > 0) {
+      logger.info("Repaired member counters on {} communities", fixed);
+    }
+  }
+
+  private static long active(CommunityUser member) {
+    return active(member.getRole(), member.isBanned(), member.isBlocked());
+  }
+
+  private static long admin(CommunityUser member) {
+    return admin(member.getRole(), member.isBanned(), member.isBlocked());
+  }
+
+  private static long active(Role role, boolean banned, boolean blocked) {
+    return role != null && !banned && !blocked && MEMBER_ROLES.contains(role) ? 1 : 0;
+  }
+
+  private static long admin(Role role, boolean banned, boolean blocked) {
+    return role != null && !banned && !blocked && ADMIN_ROLES.contains(role) ? 1 : 0;
+  }
+
+}
@@ -40,6 +40,7 @@ public class CommunityInviteService implements ICommunityInviteService {
   private final CommunityUserRepository communityUserRepository;
   private final UserRepository userRepository;
   private final NotificationService notificationService;
+  private final CommunityCounterService communityCounterService;
 
   private String generateInviteCode() {
     return UUID.randomUUID().toString().substring(0, 8);
@@ -148,6 +149,7 @@ public class CommunityInviteService implements ICommunityInviteService {
     communityUser.setJoinDate(LocalDateTime.now());
 
     communityUserRepository.save(communityUser);
+    communityCounterService.memberAdded(community, communityUser);
 
     incrementInviteUsage(invite);
 
@@ -1,6 +1,7 @@
 package org.spacehub.service.community;
 
 import lombok.RequiredArgsConstructor;
+import org.spacehub.DTO.Community.CommunityListItem;
 import org.spacehub.DTO.Community.CommunityMemberDTO;
 import org.spacehub.DTO.Community.CommunityMemberRequest;
 import org.spacehub.DTO.Community.CommunityPendingRequestDTO;
@@ -30,7 +31,9 @@ import org.spacehub.DTO.Community.CommunityBlockRequest;
 import org.spacehub.DTO.Community.UpdateCommunityDTO;
 import org.spacehub.service.File.S3Service;
 import org.spacehub.service.Notification.NotificationService;
+import org.spacehub.service.Profile.UserProfileCache;
 import org.spacehub.service.community.CommunityInterfaces.ICommunityService;
+import org.spacehub.service.serviceAuth.UserSnapshotCache;
 import org.spacehub.utils.ImageValidator;
 import org.spacehub.utils.S3UrlHelper;
 import org.springframework.http.HttpStatus;
@@ -52,10 +55,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.io.IOException;
@@ -74,6 +79,9 @@ public class CommunityService implements ICommunityService {
   private final S3UrlHelper s3UrlHelper;
   private final NotificationRepository notificationRepository;
   private final NotificationService notificationService;
+  private final CommunityCounterService communityCounterService;
+  private final UserProfileCache userProfileCache;
+  private final UserSnapshotCache userSnapshotCache;
 
 
   public static class ResourceNotFoundException extends RuntimeException {
@@ -170,6 +178,7 @@ public class CommunityService implements ICommunityService {
     admin.setBanned(false);
 
     communityUserRepository.save(admin);
+    communityCounterService.memberAdded(community, admin);
 
     if (community.getCommunityUsers() == null) {
       community.setCommunityUsers(new HashSet<>());
@@ -305,29 +314,35 @@ public class CommunityService implements ICommunityService {
   }
 
   private void addPendingRequest(Community community, User user) {
-    community.getPendingRequests().add(user);
+    if (community.getPendingRequests().add(user)) {
+      communityCounterService.requestAdded(community);
+    }
     communityRepository.save(community);
   }
 
   private void notifyCommunityAdmins(Community community, User user) {
-    community.getCommunityUsers().stream()
+    notificationService.createNotificationForAll(
+      NotificationRequestDTO.builder()
+        .senderEmail(user.getEmail())
+        .type(NotificationType.COMMUNITY_JOINED)
+        .title("Community Join Request")
+        .message(user.getUsername() + " requested to join " + community.getName())
+        .scope("community-request")
+        .actionable(true)
+        .communityId(community.getId())
+        .referenceId(community.getId())
+        .build(),
+      adminEmails(community, null)
+    );
+  }
+
+  private List<String> adminEmails(Community community, User exclude) {
+    return community.getCommunityUsers().stream()
       .filter(cu -> cu.getRole() == Role.ADMIN || cu.getRole() == Role.WORKSPACE_OWNER)
-      .forEach(adminCU -> {
-        User admin = adminCU.getUser();
-        notificationService.createNotification(
-          NotificationRequestDTO.builder()
-            .email(admin.getEmail())
-            .senderEmail(user.getEmail())
-            .type(NotificationType.COMMUNITY_JOINED)
-            .title("Community Join Request")
-            .message(user.getUsername() + " requested to join " + community.getName())
-            .scope("community-request")
-            .actionable(true)
-            .communityId(community.getId())
-            .referenceId(community.getId())
-            .build()
-        );
-      });
+      .map(CommunityUser::getUser)
+      .filter(admin -> admin != null && !admin.equals(exclude))
+      .map(User::getEmail)
+      .toList();
   }
 
   public ResponseEntity<ApiResponse<?>> cancelRequestCommunity(@RequestBody CancelJoinRequest cancelJoinRequest) {
@@ -351,6 +366,7 @@ public class CommunityService implements ICommunityService {
 
       community.getPendingRequests().remove(user);
       communityRepository.save(community);
+      communityCounterService.requestRemoved(community);
 
       community.getCommunityUsers().stream()
               .filter(cu -> cu.getRole() == Role.ADMIN || cu.getRole() == Role.WORKSPACE_OWNER)
@@ -459,8 +475,10 @@ public class CommunityService implements ICommunityService {
   }
 
   private void approveRequest(Community community, User user) {
-    community.getPendingRequests().removeIf(u -> u != null && u.getId() != null &&
-      u.getId().equals(user.getId()));
+    if (community.getPendingRequests().removeIf(u -> u != null && u.getId() != null &&
+      u.getId().equals(user.getId()))) {
+      communityCounterService.requestRemoved(community);
+    }
     communityRepository.save(community);
 
     CommunityUser newMember = new CommunityUser();
@@ -471,6 +489,7 @@ public class CommunityService implements ICommunityService {
     newMember.setBanned(false);
     newMember.setBlocked(false);
     communityUserRepository.save(newMember);
+    communityCounterService.memberAdded(community, newMember);
 
     if (community.getCommunityUsers() == null) {
       community.setCommunityUsers(new HashSet<>());
@@ -545,6 +564,7 @@ public class CommunityService implements ICommunityService {
 
   private void removeCommunityUser(Community community, CommunityUser toRemove, User user) {
     communityUserRepository.delete(toRemove);
+    communityCounterService.memberRemoved(community, toRemove);
     if (community.getCommunityUsers() != null) {
       community.getCommunityUsers().removeIf(cu ->
         (cu.getId() != null && cu.getId().equals(toRemove.getId())) ||
@@ -623,8 +643,10 @@ public class CommunityService implements ICommunityService {
   }
 
   private void removePendingRequest(Community community, User user) {
-    community.getPendingRequests().removeIf(u -> u != null && u.getId() != null &&
-      u.getId().equals(user.getId()));
+    if (community.getPendingRequests().removeIf(u -> u != null && u.getId() != null &&
+      u.getId().equals(user.getId()))) {
+      communityCounterService.requestRemoved(community);
+    }
     communityRepository.save(community);
   }
 
@@ -808,6 +830,7 @@ public class CommunityService implements ICommunityService {
     }
 
     communityUserRepository.delete(targetCU);
+    communityCounterService.memberRemoved(community, targetCU);
     communityRepository.save(community);
   }
 
@@ -860,8 +883,11 @@ public class CommunityService implements ICommunityService {
       }
 
       CommunityUser communityUser = findCommunityUser(community, target);
+      Role oldRole = communityUser.getRole();
       communityUser.setRole(newRole);
       communityUserRepository.save(communityUser);
+      communityCounterService.memberChanged(community, oldRole, communityUser.isBanned(),
+        communityUser.isBlocked(), communityUser);
 
       return ResponseEntity.ok(new ApiResponse<>(200, "Role of " + target.getEmail() +
         " changed to " + newRole, null));
@@ -1009,8 +1035,11 @@ public class CommunityService implements ICommunityService {
         .findByCommunityIdAndUserId(community.getId(), target.getId())
         .orElseThrow(() -> new ResourceNotFoundException("User is not a member of this community"));
 
+      boolean wasBanned = communityUser.isBanned();
       communityUser.setBanned(request.isBlock());
       communityUserRepository.save(communityUser);
+      communityCounterService.memberChanged(community, communityUser.getRole(), wasBanned,
+        communityUser.isBlocked(), communityUser);
 
       String blocked = request.isBlock() ? "blocked" : "unblocked";
       return ResponseEntity.ok(new ApiResponse<>(200, "User " + target.getEmail() + " has been " +
@@ -1144,31 +1173,7 @@ public class CommunityService implements ICommunityService {
         );
       }
 
-      List<Map<String, Object>> userCommunities = buildCommunityListForUser(normalizedEmail);
-
-      for (Map<String, Object> community : userCommunities) {
-        UUID communityId = (UUID) community.get("communityId");
-
-        Community c = communityRepository.findByIdWithUsers(communityId)
-          .orElse(null);
-
-        long memberCount = 0;
-        if (c != null) {
-          memberCount = c.getCommunityUsers().stream()
-            .filter(cu -> cu.getRole() == Role.MEMBER
-              || cu.getRole() == Role.ADMIN
-              || cu.getRole() == Role.WORKSPACE_OWNER)
-            .filter(cu -> !cu.isBlocked() && !cu.isBanned())
-            .map(CommunityUser::getUser)
-            .filter(Objects::nonNull)
-            .map(User::getId)
-            .distinct()
-            .count();
-        }
-
-        community.put("memberCount", memberCount);
-      }
-
+      List<Map<String, Object>> userCommunities = buildCommunityListForUser(userOpt.get());
 
       return ResponseEntity.ok(
               new ApiResponse<>(200, "User's communities fetched with member counts",
@@ -1186,61 +1191,36 @@ public class CommunityService implements ICommunityService {
     return email == null || email.isBlank();
   }
 
-  private List<Map<String, Object>> buildCommunityListForUser(String normalizedEmail) {
-    Optional<User> userOpt = userRepository.findByEmail(normalizedEmail);
-    if (userOpt.isEmpty()) {
-      return Collections.emptyList();
+  // One query returns each community the user created or belongs to, with their role and the member count.
+  private List<Map<String, Object>> buildCommunityListForUser(User user) {
+    Map<UUID, CommunityListItem> byId = new LinkedHashMap<>();
+    for (CommunityListItem item : communityRepository.findCommunityListForUser(user.getId())) {
+      byId.putIfAbsent(item.communityId(), item);
     }
 
-    User user = userOpt.get();
-    List<Community> all = communityRepository.findAll();
-    List<Map<String, Object>> out = new ArrayList<>();
-
-    for (Community c : all) {
-      if (!isUserInCommunity(c, user)) {
-        continue;
-      }
-      out.add(buildCommunityMap(c, user));
+    List<Map<String, Object>> out = new ArrayList<>(byId.size());
+    for (CommunityListItem item : byId.values()) {
+      out.add(buildCommunityMap(item, user));
     }
-
     return out;
   }
 
-  private boolean isUserInCommunity(Community c, User user) {
-    boolean isCreator = c.getCreatedBy() != null && c.getCreatedBy().getId().equals(user.getId());
-    if (isCreator) return true;
-
-    List<CommunityUser> members = communityUserRepository.findByCommunityId(c.getId());
-    return members.stream()
-      .anyMatch(cu -> cu.getUser() != null && cu.getUser().getId().equals(user.getId()));
-  }
-
-  private Map<String, Object> buildCommunityMap(Community c, User user) {
+  private Map<String, Object> buildCommunityMap(CommunityListItem c, User user) {
     Map<String, Object> m = new HashMap<>();
 
-    m.put("communityId", c.getId());
-    m.put("name", c.getName());
-    m.put("description", c.getDescription());
-    m.put("role", getUserRole(c, user));
+    m.put("communityId", c.communityId());
+    m.put("name", c.name());
+    m.put("description", c.description());
+    m.put("role", user.getId().equals(c.createdById()) ? "ADMIN"
+      : c.role() != null ? c.role().name() : "MEMBER");
+    m.put("memberCount", c.memberCount());
 
-    setImageInfo(m, "image", c.getImageUrl());
-    setImageInfo(m, "banner", c.getBannerUrl());
+    setImageInfo(m, "image", c.imageUrl());
+    setImageInfo(m, "banner", c.bannerUrl());
 
     return m;
   }
 
-  private String getUserRole(Community c, User user) {
-    if (c.getCreatedBy() != null && c.getCreatedBy().getId().equals(user.getId())) {
-      return "ADMIN";
-    }
-
-    return communityUserRepository.findByCommunityId(c.getId()).stream()
-      .filter(cu -> cu.getUser() != null && cu.getUser().getId().equals(user.getId()))
-      .map(cu -> cu.getRole().name())
-      .findFirst()
-      .orElse("MEMBER");
-  }
-
   private void setImageInfo(Map<String, Object> map, String type, String key) {
     String urlKey = type + "Url";
     String keyName = type + "Key";
@@ -1540,32 +1520,29 @@ public class CommunityService implements ICommunityService {
       requester = userRepository.findByEmail(requesterEmail).orElse(null);
     }
 
+    List<UUID> pageIds = communityPage.getContent().stream().map(Community::getId).toList();
+    Map<UUID, CommunityUser> memberships = new HashMap<>();
+    Set<UUID> memberIds = new HashSet<>();
+    Set<UUID> requestedIds = new HashSet<>();
+    if (requester != null && !pageIds.isEmpty()) {
+      for (CommunityUser cu : communityUserRepository.findByUserIdAndCommunityIdIn(requester.getId(), pageIds)) {
+        memberships.putIfAbsent(cu.getCommunity().getId(), cu);
+      }
+      memberIds.addAll(communityRepository.findIdsWithMember(requester.getId(), pageIds));
+      requestedIds.addAll(communityRepository.findIdsWithPendingUser(requester.getId(), pageIds));
+    }
+
     final User finalRequester = requester;
 
     List<Map<String, Object>> results = communityPage.getContent().stream().map(c -> {
       Map<String, Object> m = buildCommunityBasicInfo(c);
 
       if (finalRequester != null) {
+        CommunityUser membership = memberships.get(c.getId());
 
-        boolean isMember = c.getMembers().stream()
-                .anyMatch(u -> u.getId().equals(finalRequester.getId()));
-
-        if (!isMember) {
-          isMember = c.getCommunityUsers().stream()
-                  .anyMatch(cu -> cu.getUser().getId().equals(finalRequester.getId()));
-        }
-
-        boolean isRequested = c.getPendingRequests().stream()
-                .anyMatch(u -> u.getId().equals(finalRequester.getId()));
-
-        boolean isBlocked = c.getCommunityUsers().stream()
-                .anyMatch(cu ->
-                        cu.getUser().getId().equals(finalRequester.getId())
-                                && cu.isBlocked());
-
-        m.put("isMember", isMember);
-        m.put("isRequested", isRequested);
-        m.put("isBlocked", isBlocked);
+        m.put("isMember", membership != null || memberIds.contains(c.getId()));
+        m.put("isRequested", requestedIds.contains(c.getId()));
+        m.put("isBlocked", membership != null && membership.isBlocked());
       }
 
       return m;
@@ -1620,13 +1597,7 @@ public class CommunityService implements ICommunityService {
       m.put("createdBy", c.getCreatedBy().getUsername());
     }
 
-    if (c.getCommunityUsers() != null) {
-      long memberCount = c.getCommunityUsers().stream().filter(u -> !u.isBanned()).count();
-      m.put("totalMembers", memberCount);
-    }
-    else {
-      m.put("totalMembers", 0);
-    }
+    m.put("totalMembers", c.getActiveMemberCount());
 
     return m;
   }
@@ -1669,6 +1640,7 @@ public class CommunityService implements ICommunityService {
 
       community.getPendingRequests().add(user);
       communityRepository.save(community);
+      communityCounterService.requestAdded(community);
 
       community.getCommunityUsers().stream()
               .filter(cu -> cu.getRole() == Role.ADMIN || cu.getRole() == Role.WORKSPACE_OWNER)
@@ -1835,6 +1807,8 @@ public class CommunityService implements ICommunityService {
     String userKey = uploadAndReturnKey(file, "users/" + requester.getId() + "/avatar/");
     requester.setAvatarUrl(userKey);
     userRepository.save(requester);
+    userProfileCache.invalidate(requester.getEmail());
+    userSnapshotCache.invalidate(requester.getEmail());
     body.put("userAvatarKey", userKey);
     body.put("userAvatarUrl", tryGeneratePresigned(userKey));
   }
@@ -2124,12 +2098,7 @@ public class CommunityService implements ICommunityService {
   }
 
   private void applyMemberCount(Map<String, Object> m, Community c) {
-    List<Role> rolesToCount = List.of(Role.MEMBER, Role.ADMIN, Role.WORKSPACE_OWNER);
-
-    long memberCount = communityUserRepository
-      .countByCommunityIdAndRoleInAndIsBannedFalseAndIsBlockedFalse(c.getId(), rolesToCount);
-
-    m.put("memberCount", memberCount);
+    m.put("memberCount", c.getActiveMemberCount());
   }
 
   @Override
@@ -2280,23 +2249,15 @@ public class CommunityService implements ICommunityService {
   }
 
   private void notifyAdmins(Community community, User sender, String title, String message) {
-    community.getCommunityUsers().stream()
-      .filter(cu -> cu.getRole() == Role.ADMIN || cu.getRole() == Role.WORKSPACE_OWNER)
-      .map(CommunityUser::getUser)
-      .forEach(admin -> {
-        if (!admin.equals(sender)) {
-          NotificationRequestDTO request = NotificationRequestDTO.builder()
-            .senderEmail(sender.getEmail())
-            .email(admin.getEmail())
-            .title(title)
-            .message(message)
-            .type(NotificationType.COMMUNITY_MEMBER_LEFT)
-            .scope("community")
-            .communityId(community.getId())
-            .build();
-          notificationService.createNotification(request);
-        }
-      });
+    NotificationRequestDTO request = NotificationRequestDTO.builder()
+      .senderEmail(sender.getEmail())
+      .title(title)
+      .message(message)
+      .type(NotificationType.COMMUNITY_MEMBER_LEFT)
+      .scope("community")
+      .communityId(community.getId())
+      .build();
+    notificationService.createNotificationForAll(request, adminEmails(community, sender));
   }
 
   @Override
@@ -0,0 +1,308 @@
+package org.spacehub.service.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class WriteAheadJournal {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteAheadJournal.class);
+
+  private static final byte ADD = 1;
+  private static final byte DONE = 2;
+  private static final int HEADER_BYTES = Integer.BYTES * 2;
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final boolean enabled;
+  private final Stripe[] stripes;
+
+  public WriteAheadJournal(Path directory, int segmentBytes, boolean fsync, boolean enabled) {
+    this(directory, segmentBytes, fsync, enabled, 1);
+  }
+
+  // Keys are spread over independent stripes, each with its own segments, lock and fsync, so concurrent
+  // appends only contend when they land on the same stripe. Entries come back from recover() grouped by
+  // stripe; callers that care about order sort the payloads themselves.
+  public WriteAheadJournal(Path directory, int segmentBytes, boolean fsync, boolean enabled, int stripeCount) {
+    this.directory = directory;
+    this.enabled = enabled;
+    int count = Math.max(1, stripeCount);
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; i++) {
+      stripes[i] = new Stripe(count == 1 ? directory : directory.resolve("stripe-" + i), segmentBytes, fsync);
+    }
+  }
+
+  public List<byte[]> recover() {
+    if (!enabled) return List.of();
+    try {
+      Files.createDirectories(directory);
+      Map<String, byte[]> survivors = new LinkedHashMap<>();
+      for (Stripe stripe : stripes) survivors.putAll(stripe.recover());
+
+      if (stripes.length > 1) {
+        List<Path> unstriped = listSegments(directory);
+        Map<String, byte[]> carried = new LinkedHashMap<>();
+        for (Path path : unstriped) readSegment(path, carried);
+        for (Map.Entry<String, byte[]> entry : carried.entrySet()) {
+          if (survivors.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+            append(entry.getKey(), entry.getValue());
+          }
+        }
+        for (Path path : unstriped) Files.deleteIfExists(path);
+      }
+
+      if (!survivors.isEmpty()) {
+        logger.info("Recovered {} un-flushed entries from journal {}", survivors.size(), directory);
+      }
+      return new ArrayList<>(survivors.values());
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("Unable to recover message journal " + directory, e);
+    }
+  }
+
+  public void append(String key, byte[] payload) {
+    if (!enabled) return;
+    try {
+      stripeFor(key).append(key, payload);
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException("Unable to append to message journal " + directory, e);
+    }
+  }
+
+  public void complete(String key) {
+    if (!enabled || key == null) return;
+    try {
+      stripeFor(key).complete(key);
+    }
+    catch (IOException e) {
+      logger.warn("Unable to mark {} as flushed in journal {}", key, directory, e);
+    }
+  }
+
+  public int liveEntries() {
+    int live = 0;
+    for (Stripe stripe : stripes) live += stripe.liveEntries();
+    return live;
+  }
+
+  public void close() {
+    if (!enabled) return;
+    for (Stripe stripe : stripes) stripe.close();
+  }
+
+  private Stripe stripeFor(String key) {
+    return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+  }
+
+  private static final class Stripe {
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean fsync;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Segment> liveByKey = new HashMap<>();
+    private Segment active;
+    private long nextSegmentId;
+
+    private Stripe(Path directory, int segmentBytes, boolean fsync) {
+      this.directory = directory;
+      this.segmentBytes = segmentBytes;
+      this.fsync = fsync;
+    }
+
+    synchronized Map<String, byte[]> recover() throws IOException {
+      Files.createDirectories(directory);
+      List<Path> existing = listSegments(directory);
+
+      Map<String, byte[]> survivors = new LinkedHashMap<>();
+      for (Path path : existing) {
+        readSegment(path, survivors);
+        nextSegmentId = Math.max(nextSegmentId, segmentId(path) + 1);
+      }
+
+      for (Map.Entry<String, byte[]> entry : survivors.entrySet()) {
+        write(ADD, entry.getKey(), entry.getValue());
+      }
+      sync();
+
+      for (Path path : existing) {
+        Files.deleteIfExists(path);
+      }
+      return survivors;
+    }
+
+    synchronized void append(String key, byte[] payload) throws IOException {
+      write(ADD, key, payload);
+      if (fsync) active.buffer.force();
+    }
+
+    synchronized void complete(String key) throws IOException {
+      Segment owner = liveByKey.remove(key);
+      if (owner == null) return;
+      write(DONE, key, new byte[0]);
+      owner.live--;
+      releaseSegments();
+    }
+
+    synchronized int liveEntries() {
+      return liveByKey.size();
+    }
+
+    synchronized void close() {
+      sync();
+      for (Segment segment : segments) {
+        try {
+          segment.channel.close();
+        }
+        catch (IOException ignored) {}
+      }
+    }
+
+    private void write(byte type, String key, byte[] payload) throws IOException {
+      byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      int bodyLength = 1 + Short.BYTES + keyBytes.length + payload.length;
+      int recordLength = HEADER_BYTES + bodyLength;
+
+      if (active == null || active.buffer.remaining() < recordLength + Integer.BYTES) {
+        roll(recordLength + Integer.BYTES);
+      }
+
+      ByteBuffer body = ByteBuffer.allocate(bodyLength);
+      body.put(type).putShort((short) keyBytes.length).put(keyBytes).put(payload).flip();
+      CRC32 crc = new CRC32();
+      crc.update(body.duplicate());
+
+      active.buffer.putInt(bodyLength).putInt((int) crc.getValue()).put(body);
+
+      if (type == ADD) {
+        Segment previous = liveByKey.put(key, active);
+        if (previous != null) previous.live--;
+        active.live++;
+      }
+    }
+
+    private void roll(int minimumBytes) throws IOException {
+      sync();
+      active = openSegment(Math.max(segmentBytes, minimumBytes));
+      releaseSegments();
+    }
+
+    private Segment openSegment(int size) throws IOException {
+      Path path = directory.resolve(SEGMENT_PREFIX + String.format("%020d", nextSegmentId++) + SEGMENT_SUFFIX);
+      FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+      Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+      segments.addLast(segment);
+      return segment;
+    }
+
+    private void releaseSegments() {
+      while (!segments.isEmpty() && segments.peekFirst() != active && segments.peekFirst().live <= 0) {
+        Segment segment = segments.pollFirst();
+        try {
+          segment.channel.close();
+          Files.deleteIfExists(segment.path);
+        }
+        catch (IOException e) {
+          logger.warn("Unable to delete journal segment {}", segment.path, e);
+        }
+      }
+    }
+
+    private void sync() {
+      if (active != null) active.buffer.force();
+    }
+  }
+
+  private static void readSegment(Path path, Map<String, byte[]> survivors) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+    while (buffer.remaining() >= HEADER_BYTES) {
+      int bodyLength = buffer.getInt();
+      if (bodyLength <= 0 || bodyLength > buffer.remaining() - Integer.BYTES) break;
+      int expectedCrc = buffer.getInt();
+
+      byte[] body = new byte[bodyLength];
+      buffer.get(body);
+      CRC32 crc = new CRC32();
+      crc.update(body);
+      if ((int) crc.getValue() != expectedCrc) {
+        logger.warn("Stopping replay of {} at a torn record", path);
+        break;
+      }
+
+      ByteBuffer record = ByteBuffer.wrap(body);
+      byte type = record.get();
+      byte[] keyBytes = new byte[record.getShort()];
+      record.get(keyBytes);
+      String key = new String(keyBytes, StandardCharsets.UTF_8);
+      if (type == ADD) {
+        byte[] payload = new byte[record.remaining()];
+        record.get(payload);
+        survivors.remove(key);
+        survivors.put(key, payload);
+      }
+      else if (type == DONE) {
+        survivors.remove(key);
+      }
+    }
+  }
+
+  private static List<Path> listSegments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+        .filter(p -> {
+          String name = p.getFileName().toString();
+          return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+        })
+        .sorted()
+        .toList();
+    }
+  }
+
+  private static long segmentId(Path path) {
+    String name = path.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static final class Segment {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int live;
+
+    private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+
+}
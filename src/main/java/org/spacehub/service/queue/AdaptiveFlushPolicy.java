@@ -0,0 +1,84 @@
+package org.spacehub.service.queue;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveFlushPolicy implements FlushPolicy {
+
+  private static final double EWMA_WEIGHT = 0.2;
+
+  private final int countThreshold;
+  private final long byteThreshold;
+  private final long maxLatencyMillis;
+  private final int maxBatchSize;
+  private final long latencyTargetNanos;
+  private final double maxBackoff;
+
+  private final DistributionSummary flushSize;
+  private final DistributionSummary flushBytes;
+  private final Timer flushSuccess;
+  private final Timer flushFailure;
+
+  private volatile double ewmaLatencyNanos;
+  private volatile double backoff = 1.0;
+
+  public AdaptiveFlushPolicy(String name, int countThreshold, long byteThreshold, Duration maxLatency,
+                             int maxBatchSize, Duration latencyTarget, double maxBackoff,
+                             MeterRegistry meterRegistry) {
+    this.countThreshold = Math.max(1, countThreshold);
+    this.byteThreshold = Math.max(1, byteThreshold);
+    this.maxLatencyMillis = Math.max(1, maxLatency.toMillis());
+    this.maxBatchSize = Math.max(this.countThreshold, maxBatchSize);
+    this.latencyTargetNanos = Math.max(1, latencyTarget.toNanos());
+    this.maxBackoff = Math.max(1.0, maxBackoff);
+
+    this.flushSize = DistributionSummary.builder(name + ".flush.size")
+      .baseUnit("messages")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    this.flushBytes = DistributionSummary.builder(name + ".flush.bytes")
+      .baseUnit("bytes")
+      .register(meterRegistry);
+    this.flushSuccess = Timer.builder(name + ".flush.latency")
+      .tag("outcome", "success")
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+    this.flushFailure = Timer.builder(name + ".flush.latency")
+      .tag("outcome", "failure")
+      .register(meterRegistry);
+    Gauge.builder(name + ".flush.backoff", this, p -> p.backoff).register(meterRegistry);
+  }
+
+  @Override
+  public boolean shouldFlush(int pendingCount, long pendingBytes, long oldestAgeMillis) {
+    if (pendingCount <= 0) return false;
+    double factor = backoff;
+    return pendingCount >= countThreshold * factor
+      || pendingBytes >= byteThreshold * factor
+      || oldestAgeMillis >= maxLatencyMillis * factor;
+  }
+
+  @Override
+  public int maxBatchSize() {
+    return maxBatchSize;
+  }
+
+  // A slow or failing database stretches the thresholds so writes coalesce into fewer, larger
+  // transactions; the factor decays back to 1 as latency returns under target.
+  @Override
+  public synchronized void recordFlush(int batchSize, long batchBytes, long latencyNanos, boolean success) {
+    flushSize.record(batchSize);
+    flushBytes.record(batchBytes);
+    (success ? flushSuccess : flushFailure).record(latencyNanos, TimeUnit.NANOSECONDS);
+
+    double sample = success ? latencyNanos : latencyTargetNanos * maxBackoff;
+    ewmaLatencyNanos = ewmaLatencyNanos == 0 ? sample : ewmaLatencyNanos + EWMA_WEIGHT * (sample - ewmaLatencyNanos);
+    backoff = Math.min(maxBackoff, Math.max(1.0, ewmaLatencyNanos / latencyTargetNanos));
+  }
+
+}
@@ -0,0 +1,11 @@
+package org.spacehub.service.queue;
+
+public interface FlushPolicy {
+
+  boolean shouldFlush(int pendingCount, long pendingBytes, long oldestAgeMillis);
+
+  int maxBatchSize();
+
+  void recordFlush(int batchSize, long batchBytes, long latencyNanos, boolean success);
+
+}
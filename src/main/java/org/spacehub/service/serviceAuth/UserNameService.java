@@ -1,8 +1,10 @@
 package org.spacehub.service.serviceAuth;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.spacehub.entities.User.User;
 import org.spacehub.service.serviceAuth.authInterfaces.IUserNameService;
@@ -23,9 +25,17 @@ public class UserNameService implements IUserNameService {
   @Value("${SECRET_KEY}")
   private String secretKey;
 
+  private SecretKey signingKey;
+  private JwtParser parser;
+
+  @PostConstruct
+  public void init() {
+    signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+    parser = Jwts.parser().verifyWith(signingKey).build();
+  }
+
   private SecretKey getSigningKey() {
-    byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-    return Keys.hmacShaKeyFor(keyBytes);
+    return signingKey;
   }
 
   public String generateToken(UserDetails userDetails) {
@@ -66,13 +76,12 @@ public class UserNameService implements IUserNameService {
         .compact();
   }
 
+  public Claims parseClaims(String token) {
+    return parser.parseSignedClaims(token).getPayload();
+  }
+
   public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-    Claims claims = Jwts.parser()
-        .verifyWith(getSigningKey())
-        .build()
-        .parseSignedClaims(token)
-        .getPayload();
-    return claimsResolver.apply(claims);
+    return claimsResolver.apply(parseClaims(token));
   }
 
   public String extractUsername(String token) {
@@ -80,8 +89,12 @@ public class UserNameService implements IUserNameService {
   }
 
   public boolean validToken(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    return username != null && username.equals(resolveSubject(userDetails)) && !isTokenExpired(token);
+    return validClaims(parseClaims(token), userDetails);
+  }
+
+  public boolean validClaims(Claims claims, UserDetails userDetails) {
+    final String username = claims.getSubject();
+    return username != null && username.equals(resolveSubject(userDetails)) && !isExpired(claims);
   }
 
   private String resolveSubject(UserDetails userDetails) {
@@ -94,8 +107,8 @@ public class UserNameService implements IUserNameService {
     return userDetails.getUsername();
   }
 
-  private boolean isTokenExpired(String token) {
-    Date expiration = extractClaim(token, Claims::getExpiration);
+  private boolean isExpired(Claims claims) {
+    Date expiration = claims.getExpiration();
     return expiration.before(new Date());
   }
 }
@@ -30,6 +30,7 @@ public class UserService implements UserDetailsService, IUserService {
   private final EmailValidator emailValidator;
   private final S3Service s3Service;
   private final FriendsRepository friendsRepository;
+  private final UserSnapshotCache userSnapshotCache;
 
   @Override
   public UserDetails loadUserByUsername(String identifier) throws UsernameNotFoundException {
@@ -48,6 +49,7 @@ public class UserService implements UserDetailsService, IUserService {
 
   public void save(User user) {
     userRepository.save(user);
+    userSnapshotCache.invalidate(user.getEmail());
   }
 
   public boolean existsByEmail(String email) {
@@ -0,0 +1,131 @@
+package org.spacehub.service.serviceAuth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spacehub.entities.User.User;
+import org.spacehub.repository.User.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Locale;
+
+// Read-only User snapshots for authentication and connection checks. Entries are shared between threads,
+// so callers must never modify or save them; anything that writes loads the user from the repository.
+@Component
+public class UserSnapshotCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserSnapshotCache.class);
+
+  private static final String INVALIDATION_TOPIC = "spacehub:user:invalidate";
+
+  private final UserRepository userRepository;
+  private final RedissonClient redissonClient;
+  private final boolean broadcast;
+  private final Cache<String, User> cache;
+  private Integer listenerId;
+
+  public UserSnapshotCache(UserRepository userRepository,
+                           RedissonClient redissonClient,
+                           @Value("${user.snapshot-cache.max-size:50000}") long maxSize,
+                           @Value("${user.snapshot-cache.ttl:5m}") Duration ttl,
+                           @Value("${user.snapshot-cache.broadcast:true}") boolean broadcast,
+                           MeterRegistry meterRegistry) {
+    this.userRepository = userRepository;
+    this.redissonClient = redissonClient;
+    this.broadcast = broadcast;
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfterWrite(ttl)
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "userSnapshots");
+  }
+
+  @PostConstruct
+  public void subscribe() {
+    if (!broadcast) return;
+    try {
+      listenerId = topic().addListener(String.class, (channel, email) -> cache.invalidate(email));
+    }
+    catch (Exception e) {
+      logger.warn("Unable to subscribe to {}, user snapshots are invalidated locally only", INVALIDATION_TOPIC, e);
+    }
+  }
+
+  @PreDestroy
+  public void unsubscribe() {
+    if (listenerId == null) return;
+    try {
+      topic().removeListener(listenerId);
+    }
+    catch (Exception e) {
+      logger.warn("Unable to unsubscribe from {}", INVALIDATION_TOPIC, e);
+    }
+  }
+
+  public User get(String email) {
+    if (email == null || email.isBlank()) return null;
+    return cache.get(normalize(email), this::load);
+  }
+
+  // Evicted again once the surrounding transaction finishes so a concurrent read of the old row cannot
+  // repopulate the entry; other nodes are told only after the change is visible to them.
+  public void invalidate(String email) {
+    if (email == null) return;
+    String key = normalize(email);
+    cache.invalidate(key);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          cache.invalidate(key);
+          publish(key);
+        }
+      });
+    }
+    else {
+      publish(key);
+    }
+  }
+
+  private void publish(String email) {
+    if (!broadcast) return;
+    try {
+      topic().publish(email);
+    }
+    catch (Exception e) {
+      logger.warn("Unable to broadcast user snapshot invalidation for {}", email, e);
+    }
+  }
+
+  private User load(String email) {
+    try {
+      return userRepository.findByEmail(email).orElse(null);
+    }
+    catch (Exception e) {
+      logger.warn("Unable to load user snapshot for {}", email, e);
+      return null;
+    }
+  }
+
+  private RTopic topic() {
+    return redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+  }
+
+  private String normalize(String email) {
+    return email.trim().toLowerCase(Locale.ROOT);
+  }
+
+}
@@ -0,0 +1,87 @@
+package org.spacehub.service.serviceAuth;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+@Component
+public class VerifiedTokenCache {
+
+  public record VerifiedToken(String email, int passwordVersion, Instant expiresAt) {}
+
+  private final Cache<String, VerifiedToken> cache;
+  private final Duration maxTtl;
+
+  public VerifiedTokenCache(@Value("${auth.token-cache.max-size:100000}") long maxSize,
+                            @Value("${auth.token-cache.max-ttl:5m}") Duration maxTtl,
+                            MeterRegistry meterRegistry) {
+    this.maxTtl = maxTtl;
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(maxSize)
+      .expireAfter(new Expiry<String, VerifiedToken>() {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+          return ttl(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+          return ttl(value).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+          return currentDuration;
+        }
+      })
+      .recordStats()
+      .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+  }
+
+  // Only the verified claims are kept; the principal itself comes from UserSnapshotCache, whose password
+  // version the caller compares against, so a password change retires every cached token for that user.
+  public VerifiedToken get(String token) {
+    VerifiedToken verified = cache.getIfPresent(digest(token));
+    if (verified == null || !Instant.now().isBefore(verified.expiresAt())) return null;
+    return verified;
+  }
+
+  public void put(String token, String email, int passwordVersion, Date expiration) {
+    if (email == null || expiration == null) return;
+    cache.put(digest(token), new VerifiedToken(email, passwordVersion, expiration.toInstant()));
+  }
+
+  public void evict(String token) {
+    cache.invalidate(digest(token));
+  }
+
+  private Duration ttl(VerifiedToken entry) {
+    Duration remaining = Duration.between(Instant.now(), entry.expiresAt());
+    if (remaining.isNegative()) return Duration.ZERO;
+    return remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl;
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+}
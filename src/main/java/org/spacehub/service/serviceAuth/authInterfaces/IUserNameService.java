@@ -10,10 +10,14 @@ public interface IUserNameService {
 
   String generateRegistrationToken(String email);
 
+  Claims parseClaims(String token);
+
   <T> T extractClaim(String token, Function<Claims, T> claimsResolver);
 
   String extractUsername(String token);
 
   boolean validToken(String token, UserDetails userDetails);
+
+  boolean validClaims(Claims claims, UserDetails userDetails);
 }
 
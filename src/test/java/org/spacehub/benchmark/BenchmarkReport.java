@@ -0,0 +1,44 @@
+package org.spacehub.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints the measurements of the {@code @Tag("benchmark")} tests in one greppable format.
+ * Run them with {@code mvn test -Pbenchmark}; the default build excludes the tag.
+ */
+public final class BenchmarkReport {
+
+  private BenchmarkReport() {
+  }
+
+  public static void latency(String name, long[] samplesNanos) {
+    long[] sorted = samplesNanos.clone();
+    Arrays.sort(sorted);
+    print(name, String.format(Locale.ROOT, "n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+      sorted.length, micros(sorted, 0.50), micros(sorted, 0.99), micros(sorted, 0.999),
+      sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1000.0));
+  }
+
+  public static void throughput(String name, long operations, long elapsedNanos) {
+    double seconds = Math.max(1, elapsedNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    print(name, String.format(Locale.ROOT, "ops=%d elapsed=%.1fms rate=%.0f/s",
+      operations, elapsedNanos / 1e6, operations / seconds));
+  }
+
+  public static void value(String name, String description) {
+    print(name, description);
+  }
+
+  private static double micros(long[] sorted, double quantile) {
+    if (sorted.length == 0) return 0.0;
+    int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+    return sorted[Math.max(0, index)] / 1000.0;
+  }
+
+  private static void print(String name, String measurement) {
+    System.out.println("[benchmark] " + name + " " + measurement);
+  }
+
+}
@@ -0,0 +1,115 @@
+package org.spacehub.configuration.webSocket;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.spacehub.benchmark.BenchmarkReport;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Topic fan-out through the simple broker at 50k subscriptions, with the client outbound channel
+ * sized the way StompBrokerSupport sizes it by default (2x cores, up to 4x, queue of 10000).
+ * Reports delivered frames per second and how many were rejected by a full outbound queue.
+ */
+@Tag("benchmark")
+class StompFanoutBenchmark {
+
+  private static final int SUBSCRIPTIONS = 50_000;
+  private static final int TOPICS = 50;
+  private static final int MESSAGES_PER_TOPIC = 20;
+  private static final int OUTBOUND_QUEUE_CAPACITY = 10_000;
+
+  @Test
+  void topicFanOutAtFiftyThousandSubscriptions() throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+    ThreadPoolTaskExecutor outboundExecutor = new ThreadPoolTaskExecutor();
+    outboundExecutor.setCorePoolSize(cores * 2);
+    outboundExecutor.setMaxPoolSize(cores * 4);
+    outboundExecutor.setQueueCapacity(OUTBOUND_QUEUE_CAPACITY);
+    outboundExecutor.setThreadNamePrefix("bench-outbound-");
+    outboundExecutor.initialize();
+
+    AtomicLong delivered = new AtomicLong();
+    ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+    ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel(outboundExecutor);
+    ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+    outbound.subscribe(message -> delivered.incrementAndGet());
+
+    SimpleBrokerMessageHandler broker = new SimpleBrokerMessageHandler(inbound, outbound, brokerChannel,
+      List.of("/topic", "/queue"));
+    broker.start();
+    try {
+      for (int i = 0; i < SUBSCRIPTIONS; i++) {
+        broker.handleMessage(connect("session-" + i));
+        broker.handleMessage(subscribe("session-" + i, "sub-0", topic(i % TOPICS)));
+      }
+      awaitDrained(outboundExecutor);
+      delivered.set(0);
+
+      long expected = (long) SUBSCRIPTIONS * MESSAGES_PER_TOPIC;
+      long begin = System.nanoTime();
+      for (int m = 0; m < MESSAGES_PER_TOPIC; m++) {
+        for (int t = 0; t < TOPICS; t++) {
+          broker.handleMessage(publish(topic(t), "{\"online\":" + m + "}"));
+        }
+      }
+      awaitDrained(outboundExecutor);
+      long elapsed = System.nanoTime() - begin;
+
+      BenchmarkReport.throughput("stomp.fanout.delivered subscriptions=" + SUBSCRIPTIONS, delivered.get(), elapsed);
+      BenchmarkReport.value("stomp.fanout.rejected", String.format(Locale.ROOT, "expected=%d delivered=%d rejected=%d",
+        expected, delivered.get(), expected - delivered.get()));
+      assertThat(delivered.get()).isPositive().isLessThanOrEqualTo(expected);
+    }
+    finally {
+      broker.stop();
+      outboundExecutor.shutdown();
+    }
+  }
+
+  private static void awaitDrained(ThreadPoolTaskExecutor executor) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+    while (executor.getActiveCount() > 0 || !executor.getThreadPoolExecutor().getQueue().isEmpty()) {
+      assertThat(System.nanoTime()).as("outbound channel did not drain").isLessThan(deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  private static String topic(int index) {
+    return "/topic/community." + index + ".online";
+  }
+
+  private static Message<byte[]> connect(String sessionId) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+    accessor.setSessionId(sessionId);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  private static Message<byte[]> subscribe(String sessionId, String subscriptionId, String destination) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+    accessor.setSessionId(sessionId);
+    accessor.setSubscriptionId(subscriptionId);
+    accessor.setDestination(destination);
+    return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+  }
+
+  private static Message<byte[]> publish(String destination, String payload) {
+    SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+    accessor.setDestination(destination);
+    return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+  }
+
+}
@@ -0,0 +1,185 @@
+package org.spacehub.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClusterFanoutTests {
+
+  private static final String ROOM = "room-1";
+
+  private final FakeBroker broker = new FakeBroker();
+  private final List<ClusterFanout> nodes = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    nodes.forEach(ClusterFanout::shutdown);
+  }
+
+  @Test
+  void deliversPublishedFramesToOtherNodesOnly() throws Exception {
+    Received first = new Received();
+    Received second = new Received();
+    ClusterFanout.Channel firstChannel = node(100).channel("chat", first::add);
+    ClusterFanout.Channel secondChannel = node(100).channel("chat", second::add);
+    firstChannel.retain(ROOM);
+    secondChannel.retain(ROOM);
+
+    firstChannel.publish(ROOM, new TextMessage("{\"message\":\"hello\"}"));
+
+    awaitCondition(() -> second.frames().size() == 1);
+    assertThat(second.frames()).containsExactly(ROOM + "={\"message\":\"hello\"}");
+    assertThat(broker.published("spacehub:ws:chat:" + ROOM)).isEqualTo(1);
+    assertThat(first.frames()).isEmpty();
+  }
+
+  @Test
+  void stopsDeliveringAfterLastRelease() throws Exception {
+    Received second = new Received();
+    ClusterFanout.Channel firstChannel = node(100).channel("chat", (key, frame) -> { });
+    ClusterFanout.Channel secondChannel = node(100).channel("chat", second::add);
+    firstChannel.retain(ROOM);
+    secondChannel.retain(ROOM);
+    secondChannel.retain(ROOM);
+
+    secondChannel.release(ROOM);
+    firstChannel.publish(ROOM, new TextMessage("kept"));
+    awaitCondition(() -> second.frames().size() == 1);
+
+    secondChannel.release(ROOM);
+    firstChannel.publish(ROOM, new TextMessage("dropped"));
+    awaitCondition(() -> broker.published("spacehub:ws:chat:" + ROOM) == 2);
+    assertThat(second.frames()).containsExactly(ROOM + "=kept");
+  }
+
+  @Test
+  void batchesFramesQueuedWhilePublishIsInFlight() throws Exception {
+    Received second = new Received();
+    ClusterFanout.Channel firstChannel = node(3).channel("chat", (key, frame) -> { });
+    ClusterFanout.Channel secondChannel = node(3).channel("chat", second::add);
+    firstChannel.retain(ROOM);
+    secondChannel.retain(ROOM);
+
+    CountDownLatch inFlight = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    broker.blockNextPublish(inFlight, release);
+
+    firstChannel.publish(ROOM, new TextMessage("0"));
+    assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+    for (int i = 1; i <= 4; i++) firstChannel.publish(ROOM, new TextMessage(Integer.toString(i)));
+    release.countDown();
+
+    awaitCondition(() -> second.frames().size() == 5);
+    assertThat(second.frames()).containsExactly(ROOM + "=0", ROOM + "=1", ROOM + "=2", ROOM + "=3", ROOM + "=4");
+    assertThat(broker.published("spacehub:ws:chat:" + ROOM)).isEqualTo(3);
+  }
+
+  private ClusterFanout node(int maxBatch) {
+    ClusterFanout fanout = new ClusterFanout(broker.client(), new ObjectMapper(), true, maxBatch, 1,
+      new SimpleMeterRegistry());
+    nodes.add(fanout);
+    return fanout;
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  private static final class Received {
+    private final List<String> frames = Collections.synchronizedList(new ArrayList<>());
+
+    void add(String key, TextMessage frame) {
+      frames.add(key + "=" + frame.getPayload());
+    }
+
+    List<String> frames() {
+      synchronized (frames) {
+        return List.copyOf(frames);
+      }
+    }
+  }
+
+  // Stands in for Redis pub/sub: every client shares the topics, and a publish reaches every
+  // listener on the topic, the publishing node's own included, as Redis does.
+  private static final class FakeBroker {
+    private final Map<String, Map<Integer, MessageListener<String>>> listeners = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> publishes = new ConcurrentHashMap<>();
+    private final AtomicInteger listenerIds = new AtomicInteger();
+    private volatile CountDownLatch blockedInFlight;
+    private volatile CountDownLatch blockedRelease;
+
+    RedissonClient client() {
+      RedissonClient client = mock(RedissonClient.class);
+      when(client.getTopic(anyString(), any())).thenAnswer(invocation -> topic(invocation.getArgument(0)));
+      return client;
+    }
+
+    int published(String name) {
+      AtomicInteger count = publishes.get(name);
+      return count == null ? 0 : count.get();
+    }
+
+    void blockNextPublish(CountDownLatch inFlight, CountDownLatch release) {
+      this.blockedRelease = release;
+      this.blockedInFlight = inFlight;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RTopic topic(String name) {
+      RTopic topic = mock(RTopic.class);
+      Map<Integer, MessageListener<String>> subscribed = listeners.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+      when(topic.addListener(eq(String.class), any(MessageListener.class))).thenAnswer(invocation -> {
+        int id = listenerIds.incrementAndGet();
+        subscribed.put(id, invocation.getArgument(1));
+        return id;
+      });
+      doAnswer(invocation -> {
+        for (Object id : invocation.getArguments()) subscribed.remove((Integer) id);
+        return null;
+      }).when(topic).removeListener(any(Integer[].class));
+      when(topic.publish(any())).thenAnswer(invocation -> {
+        CountDownLatch inFlight = blockedInFlight;
+        if (inFlight != null) {
+          blockedInFlight = null;
+          inFlight.countDown();
+          blockedRelease.await(5, TimeUnit.SECONDS);
+        }
+        publishes.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+        String message = invocation.getArgument(0);
+        for (MessageListener<String> listener : subscribed.values()) {
+          listener.onMessage(name, message);
+        }
+        return (long) subscribed.size();
+      });
+      return topic;
+    }
+  }
+
+}
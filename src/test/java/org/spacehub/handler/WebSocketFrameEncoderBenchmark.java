@@ -0,0 +1,88 @@
+package org.spacehub.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.spacehub.DTO.chatroom.ChatMessageFrame;
+import org.spacehub.benchmark.BenchmarkReport;
+import org.springframework.web.socket.TextMessage;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bytes allocated per room broadcast: the per-recipient TextMessage built from a LinkedHashMap
+ * payload, against one typed frame encoded once and shared by every recipient.
+ */
+@Tag("benchmark")
+class WebSocketFrameEncoderBenchmark {
+
+  private static final int WARMUP = 2_000;
+  private static final int ITERATIONS = 2_000;
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+    .registerModule(new JavaTimeModule())
+    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final WebSocketFrameEncoder encoder = new WebSocketFrameEncoder(objectMapper);
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 100, 10_000})
+  void allocationPerBroadcast(int members) throws Exception {
+    TextMessage[] delivered = new TextMessage[members];
+    int iterations = Math.max(10, ITERATIONS / Math.max(1, members / 100));
+
+    for (int i = 0; i < WARMUP; i++) perRecipient(delivered, i);
+    long before = allocatedBytes();
+    for (int i = 0; i < iterations; i++) perRecipient(delivered, i);
+    long perRecipientBytes = (allocatedBytes() - before) / iterations;
+
+    for (int i = 0; i < WARMUP; i++) encodedOnce(delivered, i);
+    before = allocatedBytes();
+    for (int i = 0; i < iterations; i++) encodedOnce(delivered, i);
+    long encodedOnceBytes = (allocatedBytes() - before) / iterations;
+
+    BenchmarkReport.value("ws.broadcast.alloc members=" + members, String.format(Locale.ROOT,
+      "per-recipient=%dB encoded-once=%dB", perRecipientBytes, encodedOnceBytes));
+    assertThat(delivered[members - 1].getPayload()).contains("\"messageUuid\"");
+    if (members > 1) assertThat(encodedOnceBytes).isLessThan(perRecipientBytes);
+  }
+
+  private void perRecipient(TextMessage[] delivered, int sequence) throws Exception {
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("messageUuid", "3f1c2a9e-8d4b-4f7a-9a51-0c6e2b7d" + (1000 + sequence % 9000));
+    payload.put("type", "MESSAGE");
+    payload.put("senderEmail", "sender@example.com");
+    payload.put("message", "benchmark message " + sequence);
+    payload.put("timestamp", 1_700_000_000_000L + sequence);
+    payload.put("fileName", null);
+    payload.put("fileUrl", null);
+    payload.put("contentType", null);
+    payload.put("senderUsername", "sender");
+    String json = objectMapper.writeValueAsString(payload);
+    for (int r = 0; r < delivered.length; r++) {
+      delivered[r] = new TextMessage(json);
+    }
+  }
+
+  private void encodedOnce(TextMessage[] delivered, int sequence) throws Exception {
+    TextMessage frame = encoder.encode(new ChatMessageFrame(
+      "3f1c2a9e-8d4b-4f7a-9a51-0c6e2b7d" + (1000 + sequence % 9000), "MESSAGE", "sender@example.com",
+      "benchmark message " + sequence, 1_700_000_000_000L + sequence, null, null, null, "sender", true));
+    for (int r = 0; r < delivered.length; r++) {
+      delivered[r] = frame;
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+}
@@ -0,0 +1,162 @@
+package org.spacehub.repository.community;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.FlushModeType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.spacehub.DTO.Community.CommunityListItem;
+import org.spacehub.benchmark.BenchmarkReport;
+import org.spacehub.entities.Community.Community;
+import org.spacehub.entities.Community.CommunityUser;
+import org.spacehub.entities.Community.Role;
+import org.spacehub.entities.User.User;
+import org.spacehub.entities.User.UserRole;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regression benchmark for the "my communities" listing at 10k communities: the projection query
+ * must stay a single statement however many communities exist. The per-community lookups it
+ * replaced are timed on a sample alongside it for comparison.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+  "spring.jpa.show-sql=false",
+  "spring.jpa.properties.hibernate.format_sql=false",
+  "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CommunityListingBenchmark {
+
+  private static final int COMMUNITIES = 10_000;
+  private static final int OTHER_USERS = 200;
+  private static final int MEMBERS_PER_COMMUNITY = 5;
+  private static final int JOINED_EVERY = 10;
+  private static final int CREATED_EVERY = 100;
+  private static final int ITERATIONS = 20;
+  private static final int PER_COMMUNITY_SAMPLE = 200;
+
+  @Autowired
+  private EntityManager entityManager;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private CommunityRepository communityRepository;
+
+  @Autowired
+  private CommunityUserRepository communityUserRepository;
+
+  @Test
+  void listingStaysOneQueryAtTenThousandCommunities() {
+    User me = seed();
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+    int expected = COMMUNITIES / JOINED_EVERY + COMMUNITIES / CREATED_EVERY;
+    assertThat(communityRepository.findCommunityListForUser(me.getId())).hasSize(expected);
+
+    long[] samples = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      entityManager.clear();
+      statistics.clear();
+      long begin = System.nanoTime();
+      List<CommunityListItem> items = communityRepository.findCommunityListForUser(me.getId());
+      samples[i] = System.nanoTime() - begin;
+      assertThat(items).hasSize(expected);
+      assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+    BenchmarkReport.latency("community.listing.projection communities=" + COMMUNITIES, samples);
+
+    entityManager.clear();
+    entityManager.setFlushMode(FlushModeType.COMMIT);
+    statistics.clear();
+    long begin = System.nanoTime();
+    listPerCommunity(me, PER_COMMUNITY_SAMPLE);
+    long elapsed = System.nanoTime() - begin;
+    long statements = statistics.getPrepareStatementCount();
+    double perCommunityMillis = elapsed / 1e6 / PER_COMMUNITY_SAMPLE;
+    BenchmarkReport.value("community.listing.per-community communities=" + COMMUNITIES,
+      String.format(Locale.ROOT, "sampled=%d per-community=%.2fms projected=%.0fms statements=%d",
+        PER_COMMUNITY_SAMPLE, perCommunityMillis, perCommunityMillis * COMMUNITIES, statements));
+    assertThat(statements).isGreaterThan(2L * PER_COMMUNITY_SAMPLE);
+  }
+
+  // The lookups listMyCommunities made before the projection query: every community, two
+  // community_user reads each, and a reload with members for the ones the user belongs to.
+  // Walking all 10k takes minutes, so only the first communities are timed and the total is
+  // projected. COMMIT flush mode keeps the loaded communities from being dirty-checked per query.
+  private void listPerCommunity(User me, int limit) {
+    List<Community> communities = communityRepository.findAll();
+    for (Community community : communities.subList(0, Math.min(limit, communities.size()))) {
+      boolean created = community.getCreatedBy() != null && me.getId().equals(community.getCreatedBy().getId());
+      boolean member = communityUserRepository.findByCommunityId(community.getId()).stream()
+        .anyMatch(cu -> cu.getUser() != null && me.getId().equals(cu.getUser().getId()));
+      communityUserRepository.findByCommunityId(community.getId());
+      if (created || member) {
+        communityRepository.findByIdWithUsers(community.getId());
+      }
+    }
+  }
+
+  private User seed() {
+    User me = user("me");
+    entityManager.persist(me);
+    List<User> others = new ArrayList<>(OTHER_USERS);
+    for (int i = 0; i < OTHER_USERS; i++) {
+      User other = user("member-" + i);
+      entityManager.persist(other);
+      others.add(other);
+    }
+
+    for (int c = 0; c < COMMUNITIES; c++) {
+      Community community = new Community();
+      community.setName("community-" + c);
+      community.setDescription("benchmark community " + c);
+      community.setCreatedBy(c % CREATED_EVERY == 0 ? me : others.get(c % OTHER_USERS));
+      entityManager.persist(community);
+
+      for (int m = 0; m < MEMBERS_PER_COMMUNITY; m++) {
+        entityManager.persist(membership(community, others.get((c + m) % OTHER_USERS), Role.MEMBER));
+      }
+      if (c % JOINED_EVERY == 1) {
+        entityManager.persist(membership(community, me, Role.MEMBER));
+      }
+      if (c % 500 == 499) {
+        entityManager.flush();
+        entityManager.clear();
+        me = entityManager.find(User.class, me.getId());
+        List<User> reloaded = new ArrayList<>(OTHER_USERS);
+        for (User other : others) reloaded.add(entityManager.find(User.class, other.getId()));
+        others = reloaded;
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    return me;
+  }
+
+  private static User user(String name) {
+    User user = new User(name, "benchmark", name + "@example.com", "password", UserRole.USER);
+    user.setUsername(name + "-" + UUID.randomUUID());
+    return user;
+  }
+
+  private static CommunityUser membership(Community community, User user, Role role) {
+    CommunityUser membership = new CommunityUser();
+    membership.setCommunity(community);
+    membership.setUser(user);
+    membership.setRole(role);
+    return membership;
+  }
+
+}
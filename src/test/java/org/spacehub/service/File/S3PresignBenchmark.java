@@ -0,0 +1,86 @@
+package org.spacehub.service.File;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.spacehub.benchmark.BenchmarkReport;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Cost of handing out download URLs for a listing page: a SigV4 signature per URL against the
+ * presign cache. Signing is local, so the presigner runs with static credentials and no network.
+ */
+@Tag("benchmark")
+class S3PresignBenchmark {
+
+  private static final int KEYS_PER_PAGE = 200;
+  private static final int PAGE_LOADS = 50;
+  private static final Duration URL_LIFETIME = Duration.ofMinutes(15);
+
+  private final S3Presigner presigner = S3Presigner.builder()
+    .region(Region.US_EAST_1)
+    .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("AKIDBENCHMARK", "benchmark-secret")))
+    .build();
+
+  @AfterEach
+  void tearDown() {
+    presigner.close();
+  }
+
+  @Test
+  void signingCostWithAndWithoutTheCache() {
+    S3Service uncached = service(0.0);
+    S3Service cached = service(0.5);
+
+    loadPages(uncached, PAGE_LOADS);
+    loadPages(cached, PAGE_LOADS);
+
+    long[] signed = loadPages(uncached, PAGE_LOADS);
+    long[] reused = loadPages(cached, PAGE_LOADS);
+
+    BenchmarkReport.latency("s3.presign.url signed-every-time", signed);
+    BenchmarkReport.latency("s3.presign.url cached", reused);
+    BenchmarkReport.value("s3.presign.total", String.format(Locale.ROOT, "signed=%.1fms cached=%.1fms",
+      sum(signed) / 1e6, sum(reused) / 1e6));
+    assertThat(cached.generatePresignedDownloadUrl("key-0", URL_LIFETIME))
+      .isEqualTo(cached.generatePresignedDownloadUrl("key-0", URL_LIFETIME));
+  }
+
+  private S3Service service(double reuseFraction) {
+    S3Service service = new S3Service(mock(S3Client.class), presigner, 50_000, reuseFraction, new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(service, "bucketName", "spacehub-benchmark");
+    return service;
+  }
+
+  private static long[] loadPages(S3Service service, int pages) {
+    long[] samples = new long[pages * KEYS_PER_PAGE];
+    for (int p = 0; p < pages; p++) {
+      for (int k = 0; k < KEYS_PER_PAGE; k++) {
+        long begin = System.nanoTime();
+        String url = service.generatePresignedDownloadUrl("community-images/key-" + k, URL_LIFETIME);
+        samples[p * KEYS_PER_PAGE + k] = System.nanoTime() - begin;
+        assertThat(url).contains("X-Amz-Signature");
+      }
+    }
+    return samples;
+  }
+
+  private static long sum(long[] samples) {
+    long total = 0;
+    for (long sample : samples) total += sample;
+    return total;
+  }
+
+}
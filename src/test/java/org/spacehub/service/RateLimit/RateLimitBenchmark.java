@@ -0,0 +1,104 @@
+package org.spacehub.service.RateLimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.spacehub.benchmark.BenchmarkReport;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Rate-limit check latency with and without the local lease tier, against a real Redis.
+ * Set SPACEHUB_BENCHMARK_REDIS_URL (e.g. redis://localhost:6379); it is skipped otherwise.
+ */
+@Tag("benchmark")
+class RateLimitBenchmark {
+
+  private static final int THREADS = 8;
+  private static final int CHECKS_PER_THREAD = 20_000;
+  private static final int IDENTITIES = 200;
+  private static final long CAPACITY = 6_000;
+
+  private RedissonClient redissonClient;
+
+  @BeforeEach
+  void setUp() {
+    String url = System.getenv("SPACEHUB_BENCHMARK_REDIS_URL");
+    assumeTrue(url != null && !url.isBlank(), "SPACEHUB_BENCHMARK_REDIS_URL is not set");
+    Config config = new Config();
+    config.useSingleServer().setAddress(url);
+    redissonClient = Redisson.create(config);
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (redissonClient != null) redissonClient.shutdown();
+  }
+
+  @Test
+  void checkLatencyWithAndWithoutLocalTier() throws Exception {
+    for (boolean localTier : new boolean[] {false, true}) {
+      run(localTier, CHECKS_PER_THREAD / 10);
+      SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+      long[] samples = run(service(localTier, meterRegistry), CHECKS_PER_THREAD);
+      double remote = meterRegistry.get("rate.limit.decisions").tag("tier", "remote").counter().count();
+      BenchmarkReport.latency("rate.limit.check local-tier=" + localTier, samples);
+      BenchmarkReport.value("rate.limit.remote local-tier=" + localTier, String.format(Locale.ROOT,
+        "remote=%.0f of %d", remote, samples.length));
+    }
+  }
+
+  private void run(boolean localTier, int checksPerThread) throws Exception {
+    run(service(localTier, new SimpleMeterRegistry()), checksPerThread);
+  }
+
+  private long[] run(RateLimitService service, int checksPerThread) throws Exception {
+    String run = UUID.randomUUID().toString();
+    long[] samples = new long[THREADS * checksPerThread];
+    AtomicInteger allowed = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < THREADS; t++) {
+      int thread = t;
+      pool.execute(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < checksPerThread; i++) {
+            String identity = run + ":" + ((thread * 31 + i) % IDENTITIES);
+            long begin = System.nanoTime();
+            if (service.tryConsume("/api/v1/benchmark", identity)) allowed.incrementAndGet();
+            samples[thread * checksPerThread + i] = System.nanoTime() - begin;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+    assertThat(allowed.get()).isPositive();
+    return samples;
+  }
+
+  private RateLimitService service(boolean localTier, SimpleMeterRegistry meterRegistry) {
+    return new RateLimitService(redissonClient, CAPACITY, Duration.ofMinutes(1), "", localTier, 0.05,
+      Duration.ofSeconds(1), Duration.ofSeconds(5), 100_000, meterRegistry);
+  }
+
+}
@@ -0,0 +1,126 @@
+package org.spacehub.service.chatRoom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.spacehub.benchmark.BenchmarkReport;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Rows per second for the chat_messages insert path before and after batching, issued the way
+ * Hibernate issues them: one INSERT per row with generated keys for IDENTITY ids, against pooled
+ * sequence ids with JDBC batches of 50 and reWriteBatchedInserts. Needs a PostgreSQL database:
+ * set SPACEHUB_BENCHMARK_JDBC_URL (and _USER / _PASSWORD); it is skipped otherwise.
+ */
+@Tag("benchmark")
+class ChatMessageInsertBenchmark {
+
+  private static final int ROWS = 50_000;
+  private static final int FLUSH_ROWS = 500;
+  private static final int JDBC_BATCH = 50;
+
+  private static final String COLUMNS = "message_uuid varchar(36) not null unique, sender_email varchar(320) not null, "
+    + "message text not null, timestamp bigint not null, room_code varchar(100) not null, "
+    + "type varchar(50) not null";
+
+  @Test
+  void rowsPerSecondBeforeAndAfterBatching() throws SQLException {
+    String url = System.getenv("SPACEHUB_BENCHMARK_JDBC_URL");
+    assumeTrue(url != null && !url.isBlank(), "SPACEHUB_BENCHMARK_JDBC_URL is not set");
+
+    try (Connection connection = connect(url, false)) {
+      insertRowByRow(connection, FLUSH_ROWS);
+      long begin = System.nanoTime();
+      insertRowByRow(connection, ROWS);
+      BenchmarkReport.throughput("chat.insert.identity-row-by-row", ROWS, System.nanoTime() - begin);
+    }
+
+    try (Connection connection = connect(url, true)) {
+      insertBatched(connection, FLUSH_ROWS);
+      long begin = System.nanoTime();
+      insertBatched(connection, ROWS);
+      BenchmarkReport.throughput("chat.insert.sequence-batched", ROWS, System.nanoTime() - begin);
+    }
+  }
+
+  private static void insertRowByRow(Connection connection, int rows) throws SQLException {
+    try (Statement ddl = connection.createStatement()) {
+      ddl.execute("create temp table if not exists bench_identity (id bigserial primary key, " + COLUMNS + ")");
+    }
+    String sql = "insert into bench_identity (message_uuid, sender_email, message, timestamp, room_code, type) "
+      + "values (?, ?, ?, ?, ?, ?)";
+    try (PreparedStatement insert = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+      for (int i = 0; i < rows; i++) {
+        bind(insert, 1, i);
+        assertThat(insert.executeUpdate()).isEqualTo(1);
+        try (ResultSet keys = insert.getGeneratedKeys()) {
+          assertThat(keys.next()).isTrue();
+        }
+        if ((i + 1) % FLUSH_ROWS == 0) connection.commit();
+      }
+      connection.commit();
+    }
+  }
+
+  private static void insertBatched(Connection connection, int rows) throws SQLException {
+    try (Statement ddl = connection.createStatement()) {
+      ddl.execute("create temp sequence if not exists bench_seq increment by " + JDBC_BATCH);
+      ddl.execute("create temp table if not exists bench_sequence (id bigint primary key, " + COLUMNS + ")");
+    }
+    String sql = "insert into bench_sequence (id, message_uuid, sender_email, message, timestamp, room_code, type) "
+      + "values (?, ?, ?, ?, ?, ?, ?)";
+    try (PreparedStatement nextval = connection.prepareStatement("select nextval('bench_seq')");
+         PreparedStatement insert = connection.prepareStatement(sql)) {
+      long nextId = 0;
+      long lastId = -1;
+      for (int i = 0; i < rows; i++) {
+        if (nextId > lastId) {
+          try (ResultSet rs = nextval.executeQuery()) {
+            rs.next();
+            lastId = rs.getLong(1);
+            nextId = lastId - JDBC_BATCH + 1;
+          }
+        }
+        insert.setLong(1, nextId++);
+        bind(insert, 2, i);
+        insert.addBatch();
+        if ((i + 1) % JDBC_BATCH == 0) insert.executeBatch();
+        if ((i + 1) % FLUSH_ROWS == 0) connection.commit();
+      }
+      insert.executeBatch();
+      connection.commit();
+    }
+  }
+
+  private static void bind(PreparedStatement insert, int first, int sequence) throws SQLException {
+    insert.setString(first, UUID.randomUUID().toString());
+    insert.setString(first + 1, "sender-" + (sequence % 32) + "@example.com");
+    insert.setString(first + 2, "benchmark message " + sequence);
+    insert.setLong(first + 3, System.currentTimeMillis());
+    insert.setString(first + 4, "room-" + (sequence % 16));
+    insert.setString(first + 5, "MESSAGE");
+  }
+
+  private static Connection connect(String url, boolean rewriteBatchedInserts) throws SQLException {
+    Properties properties = new Properties();
+    String user = System.getenv("SPACEHUB_BENCHMARK_JDBC_USER");
+    String password = System.getenv("SPACEHUB_BENCHMARK_JDBC_PASSWORD");
+    if (user != null) properties.setProperty("user", user);
+    if (password != null) properties.setProperty("password", password);
+    properties.setProperty("reWriteBatchedInserts", Boolean.toString(rewriteBatchedInserts));
+    Connection connection = DriverManager.getConnection(url, properties);
+    connection.setAutoCommit(false);
+    return connection;
+  }
+
+}
@@ -0,0 +1,119 @@
+package org.spacehub.service.chatRoom;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spacehub.benchmark.BenchmarkReport;
+import org.spacehub.entities.ChatRoom.ChatMessage;
+import org.spacehub.repository.ChatRoom.ChatRoomRepository;
+import org.spacehub.repository.ChatRoom.NewChatRoomRepository;
+import org.spacehub.service.journal.WriteAheadJournal;
+import org.spacehub.service.queue.AdaptiveFlushPolicy;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Enqueue latency while the shard workers are flushing: every batch insert is held for
+ * {@link #INSERT_NANOS}, so a send path that waited on the flush would show it in p99.
+ */
+@Tag("benchmark")
+class ChatMessageQueueBenchmark {
+
+  private static final int PRODUCERS = 8;
+  private static final int ROOMS = 16;
+  private static final int MESSAGES_PER_PRODUCER = 20_000;
+  private static final long INSERT_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void enqueueLatencyUnderConcurrentFlush() throws Exception {
+    run("warmup", 2_000);
+    long[] samples = run("measure", MESSAGES_PER_PRODUCER);
+    BenchmarkReport.latency("chat.queue.enqueue", samples);
+  }
+
+  private long[] run(String phase, int perProducer) throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    ChatMessageService chatMessageService = mock(ChatMessageService.class);
+    AtomicInteger persisted = new AtomicInteger();
+    when(chatMessageService.saveAll(anyList())).thenAnswer(invocation -> {
+      List<ChatMessage> batch = invocation.getArgument(0);
+      LockSupport.parkNanos(INSERT_NANOS);
+      persisted.addAndGet(batch.size());
+      return batch;
+    });
+
+    WriteAheadJournal journal = new WriteAheadJournal(directory.resolve(phase), 1 << 24, false, true);
+    WriteAheadJournal deadLetters = new WriteAheadJournal(directory.resolve(phase + "-dead"), 1 << 16, false, true);
+    ChatMessageQueue queue = new ChatMessageQueue(chatMessageService,
+      new ChatRoomHistoryCache(null, 200, 1 << 26, 16, false, meterRegistry), journal, deadLetters,
+      new ObjectMapper(), mock(NewChatRoomRepository.class), mock(ChatRoomRepository.class),
+      new AdaptiveFlushPolicy("bench.chat.queue", 100, 262_144, Duration.ofSeconds(1), 500,
+        Duration.ofMillis(200), 8, meterRegistry),
+      4, 5, meterRegistry);
+    queue.recoverJournal();
+
+    ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+    ticker.scheduleWithFixedDelay(queue::flushQueue, 200, 200, TimeUnit.MILLISECONDS);
+
+    long[] samples = new long[PRODUCERS * perProducer];
+    ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int p = 0; p < PRODUCERS; p++) {
+      int producer = p;
+      producers.execute(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < perProducer; i++) {
+            ChatMessage message = message("sender-" + producer, "room-" + (i % ROOMS), i);
+            long begin = System.nanoTime();
+            queue.enqueue(message);
+            samples[producer * perProducer + i] = System.nanoTime() - begin;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    start.countDown();
+    producers.shutdown();
+    assertThat(producers.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+
+    ticker.shutdown();
+    queue.shutdown();
+    journal.close();
+    deadLetters.close();
+    assertThat(persisted.get()).isEqualTo(samples.length);
+    return samples;
+  }
+
+  private static ChatMessage message(String sender, String roomCode, int sequence) {
+    return ChatMessage.builder()
+      .messageUuid(UUID.randomUUID().toString())
+      .senderEmail(sender)
+      .message("message " + sequence)
+      .timestamp(System.currentTimeMillis())
+      .roomCode(roomCode)
+      .build();
+  }
+
+}
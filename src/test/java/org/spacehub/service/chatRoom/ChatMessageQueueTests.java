@@ -0,0 +1,293 @@
+package org.spacehub.service.chatRoom;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spacehub.DTO.chatroom.ChatHistoryPage;
+import org.spacehub.entities.ChatRoom.ChatMessage;
+import org.spacehub.entities.ChatRoom.NewChatRoom;
+import org.spacehub.repository.ChatRoom.ChatRoomRepository;
+import org.spacehub.repository.ChatRoom.NewChatRoomRepository;
+import org.spacehub.service.journal.WriteAheadJournal;
+import org.spacehub.service.queue.FlushPolicy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatMessageQueueTests {
+
+  private static final String ROOM = "room-1";
+
+  @TempDir
+  Path directory;
+
+  private final ChatMessageService chatMessageService = mock(ChatMessageService.class);
+  private final List<ChatMessage> persisted = Collections.synchronizedList(new ArrayList<>());
+  private final TestFlushPolicy flushPolicy = new TestFlushPolicy();
+
+  private WriteAheadJournal journal;
+  private ChatMessageQueue queue;
+
+  @BeforeEach
+  void setUp() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    journal = new WriteAheadJournal(directory.resolve("chat"), 1 << 16, false, true);
+    WriteAheadJournal deadLetters = new WriteAheadJournal(directory.resolve("dead"), 1 << 16, false, true);
+    queue = new ChatMessageQueue(chatMessageService, new ChatRoomHistoryCache(null, 200, 1 << 20, 4, false, meterRegistry),
+      journal, deadLetters, new ObjectMapper(), mock(NewChatRoomRepository.class), mock(ChatRoomRepository.class),
+      flushPolicy, 2, 3, meterRegistry);
+    queue.recoverJournal();
+    when(chatMessageService.saveAll(anyList())).thenAnswer(invocation -> persist(invocation.getArgument(0)));
+  }
+
+  @AfterEach
+  void tearDown() {
+    flushPolicy.flush = false;
+    queue.shutdown();
+    journal.close();
+  }
+
+  @Test
+  void keepsPerSenderOrderUnderConcurrentEnqueue() throws Exception {
+    flushPolicy.flush = true;
+    flushPolicy.maxBatch = 7;
+    int senders = 8;
+    int perSender = 250;
+
+    ExecutorService pool = Executors.newFixedThreadPool(senders);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int s = 0; s < senders; s++) {
+      String sender = "sender-" + s;
+      pool.execute(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < perSender; i++) queue.enqueue(message(sender, i));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    start.countDown();
+    pool.shutdown();
+    assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    awaitCondition(() -> {
+      queue.flushQueue();
+      return persisted.size() == senders * perSender && journal.liveEntries() == 0;
+    });
+
+    Map<String, Integer> lastSeen = new HashMap<>();
+    for (ChatMessage m : persisted) {
+      int sequence = Integer.parseInt(m.getMessage());
+      Integer previous = lastSeen.put(m.getSenderEmail(), sequence);
+      assertThat(sequence).isEqualTo(previous == null ? 0 : previous + 1);
+    }
+    assertThat(queue.getPendingDepth(ROOM)).isZero();
+  }
+
+  @Test
+  void requeuesFailedBatchAtTheHeadInOrder() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    when(chatMessageService.saveAll(anyList())).thenAnswer(invocation -> {
+      if (calls.getAndIncrement() == 0) throw new IllegalStateException("database unavailable");
+      return persist(invocation.getArgument(0));
+    });
+
+    List<ChatMessage> sent = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      ChatMessage m = message("alice", i);
+      sent.add(m);
+      queue.enqueue(m);
+    }
+
+    flushPolicy.flush = true;
+    queue.flushQueue();
+    awaitCondition(() -> calls.get() >= 1);
+    queue.enqueue(message("alice", 4));
+
+    awaitCondition(() -> {
+      queue.flushQueue();
+      return persisted.size() == 5 && journal.liveEntries() == 0;
+    });
+    assertThat(persisted).extracting(ChatMessage::getMessage).containsExactly("0", "1", "2", "3", "4");
+    assertThat(sent).allSatisfy(m -> assertThat(queue.isPending(m.getMessageUuid())).isFalse());
+  }
+
+  @Test
+  void dropsTombstonedMessagesWhenRequeueing() throws Exception {
+    CountDownLatch inFlight = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+    when(chatMessageService.saveAll(anyList())).thenAnswer(invocation -> {
+      if (calls.getAndIncrement() == 0) {
+        inFlight.countDown();
+        release.await(5, TimeUnit.SECONDS);
+        throw new IllegalStateException("database unavailable");
+      }
+      return persist(invocation.getArgument(0));
+    });
+    when(chatMessageService.deleteMessageByUuid(anyString())).thenReturn(false);
+
+    ChatMessage first = message("alice", 0);
+    ChatMessage deleted = message("alice", 1);
+    ChatMessage last = message("alice", 2);
+    queue.enqueue(first);
+    queue.enqueue(deleted);
+    queue.enqueue(last);
+
+    flushPolicy.flush = true;
+    queue.flushQueue();
+    assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(queue.deleteMessageByUuid(deleted.getMessageUuid())).isTrue();
+    release.countDown();
+
+    awaitCondition(() -> {
+      queue.flushQueue();
+      return persisted.size() == 2 && journal.liveEntries() == 0;
+    });
+    assertThat(persisted).extracting(ChatMessage::getMessageUuid)
+      .containsExactly(first.getMessageUuid(), last.getMessageUuid());
+    assertThat(queue.isPending(deleted.getMessageUuid())).isFalse();
+  }
+
+  @Test
+  void deadLettersRowThatKeepsFailing() throws Exception {
+    ChatMessage poison = message("alice", 1);
+    when(chatMessageService.saveAll(anyList())).thenAnswer(invocation -> {
+      List<ChatMessage> batch = invocation.getArgument(0);
+      if (batch.stream().anyMatch(m -> m.getMessageUuid().equals(poison.getMessageUuid()))) {
+        throw new IllegalArgumentException("value too long");
+      }
+      return persist(batch);
+    });
+
+    queue.enqueue(message("alice", 0));
+    queue.enqueue(poison);
+    queue.enqueue(message("alice", 2));
+    flushPolicy.flush = true;
+
+    awaitCondition(() -> {
+      queue.flushQueue();
+      return persisted.size() == 2 && journal.liveEntries() == 0;
+    });
+    assertThat(persisted).extracting(ChatMessage::getMessage).containsExactly("0", "2");
+    assertThat(queue.isPending(poison.getMessageUuid())).isFalse();
+  }
+
+  @Test
+  void pendingCursorDoesNotRepeatOnceFlushed() throws Exception {
+    NewChatRoom room = NewChatRoom.builder().roomCode(UUID.randomUUID()).build();
+    long timestamp = System.currentTimeMillis();
+    List<ChatMessage> sent = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ChatMessage m = message("alice", i);
+      m.setRoomCode(room.getRoomCode().toString());
+      m.setTimestamp(timestamp);
+      sent.add(m);
+      queue.enqueue(m);
+    }
+    when(chatMessageService.getLatestMessagesForNewChatRoom(any(), anyInt())).thenReturn(List.of());
+    when(chatMessageService.getMessagesBefore(any(), anyLong(), anyLong(), anyInt()))
+      .thenAnswer(invocation -> persistedBefore(invocation.getArgument(1), m -> m.getId() < (long) invocation.getArgument(2)));
+    when(chatMessageService.getMessagesBeforeUuid(any(), anyLong(), anyString(), anyInt()))
+      .thenAnswer(invocation -> persistedBefore(invocation.getArgument(1),
+        m -> m.getMessageUuid().compareTo(invocation.getArgument(2)) < 0));
+
+    ChatHistoryPage first = queue.getHistoryPage(room, null, null, null, 1);
+    assertThat(first.getNextBeforeId()).isNull();
+
+    flushPolicy.flush = true;
+    awaitCondition(() -> {
+      queue.flushQueue();
+      return persisted.size() == 3;
+    });
+
+    ChatHistoryPage rest = queue.getHistoryPage(room, first.getNextBeforeTimestamp(), first.getNextBeforeId(),
+      first.getNextBeforeUuid(), 10);
+    List<String> seen = new ArrayList<>();
+    first.getMessages().forEach(m -> seen.add(m.getMessageUuid()));
+    rest.getMessages().forEach(m -> seen.add(m.getMessageUuid()));
+    assertThat(seen).doesNotHaveDuplicates()
+      .containsExactlyInAnyOrderElementsOf(sent.stream().map(ChatMessage::getMessageUuid).toList());
+  }
+
+  private List<ChatMessage> persistedBefore(long timestamp, Predicate<ChatMessage> sameTimestamp) {
+    synchronized (persisted) {
+      return persisted.stream()
+        .filter(m -> m.getTimestamp() < timestamp || (m.getTimestamp() == timestamp && sameTimestamp.test(m)))
+        .sorted(ChatMessageQueue.OLDEST_FIRST.reversed())
+        .toList();
+    }
+  }
+
+  private List<ChatMessage> persist(List<ChatMessage> batch) {
+    synchronized (persisted) {
+      for (ChatMessage m : batch) {
+        m.setId((long) persisted.size() + 1);
+        persisted.add(m);
+      }
+    }
+    return batch;
+  }
+
+  private static ChatMessage message(String sender, int sequence) {
+    return ChatMessage.builder()
+      .messageUuid(UUID.randomUUID().toString())
+      .senderEmail(sender)
+      .message(Integer.toString(sequence))
+      .timestamp(System.currentTimeMillis())
+      .roomCode(ROOM)
+      .build();
+  }
+
+  private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+
+  private static final class TestFlushPolicy implements FlushPolicy {
+    private volatile boolean flush;
+    private volatile int maxBatch = 100;
+
+    @Override
+    public boolean shouldFlush(int pendingCount, long pendingBytes, long oldestAgeMillis) {
+      return flush && pendingCount > 0;
+    }
+
+    @Override
+    public int maxBatchSize() {
+      return maxBatch;
+    }
+
+    @Override
+    public void recordFlush(int batchSize, long batchBytes, long latencyNanos, boolean success) {
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+package org.spacehub.service.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadJournalTests {
+
+  private static final int SEGMENT_BYTES = 4096;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void recoversOnlyEntriesThatWereNotCompleted() {
+    WriteAheadJournal journal = open(1);
+    journal.recover();
+    journal.append("a", bytes("first"));
+    journal.append("b", bytes("second"));
+    journal.append("c", bytes("third"));
+    journal.complete("b");
+    journal.close();
+
+    WriteAheadJournal reopened = open(1);
+    assertThat(strings(reopened.recover())).containsExactly("first", "third");
+    assertThat(reopened.liveEntries()).isEqualTo(2);
+    reopened.close();
+  }
+
+  @Test
+  void stopsReplayAtPartialWrite() throws IOException {
+    WriteAheadJournal journal = open(1);
+    journal.recover();
+    journal.append("a", bytes("first"));
+    journal.append("b", bytes("second"));
+    journal.close();
+
+    Path segment = onlySegment();
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.setLength(recordLength("a", "first") + recordLength("b", "second") - 3);
+    }
+
+    WriteAheadJournal reopened = open(1);
+    assertThat(strings(reopened.recover())).containsExactly("first");
+    reopened.close();
+  }
+
+  @Test
+  void stopsReplayAtCrcMismatch() throws IOException {
+    WriteAheadJournal journal = open(1);
+    journal.recover();
+    journal.append("a", bytes("first"));
+    journal.append("b", bytes("second"));
+    journal.append("c", bytes("third"));
+    journal.close();
+
+    Path segment = onlySegment();
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      long corrupt = recordLength("a", "first") + recordLength("b", "second") - 1;
+      file.seek(corrupt);
+      int value = file.read();
+      file.seek(corrupt);
+      file.write(value ^ 0xFF);
+    }
+
+    WriteAheadJournal reopened = open(1);
+    assertThat(strings(reopened.recover())).containsExactly("first");
+    reopened.close();
+  }
+
+  @Test
+  void recoveredEntriesSurviveASecondRestart() {
+    WriteAheadJournal journal = open(1);
+    journal.recover();
+    journal.append("a", bytes("first"));
+    journal.close();
+
+    WriteAheadJournal second = open(1);
+    assertThat(strings(second.recover())).containsExactly("first");
+    second.close();
+
+    WriteAheadJournal third = open(1);
+    assertThat(strings(third.recover())).containsExactly("first");
+    third.complete("a");
+    assertThat(third.liveEntries()).isZero();
+    third.close();
+  }
+
+  @Test
+  void carriesUnstripedSegmentsIntoStripes() {
+    WriteAheadJournal unstriped = open(1);
+    unstriped.recover();
+    unstriped.append("a", bytes("first"));
+    unstriped.append("b", bytes("second"));
+    unstriped.close();
+
+    WriteAheadJournal striped = open(4);
+    assertThat(strings(striped.recover())).containsExactlyInAnyOrder("first", "second");
+    striped.complete("a");
+    striped.close();
+
+    WriteAheadJournal reopened = open(4);
+    assertThat(strings(reopened.recover())).containsExactly("second");
+    reopened.close();
+  }
+
+  private WriteAheadJournal open(int stripes) {
+    return new WriteAheadJournal(directory, SEGMENT_BYTES, false, true, stripes);
+  }
+
+  private Path onlySegment() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> segments = files.filter(p -> p.getFileName().toString().endsWith(".log")).toList();
+      assertThat(segments).hasSize(1);
+      return segments.get(0);
+    }
+  }
+
+  private static int recordLength(String key, String payload) {
+    return Integer.BYTES * 2 + 1 + Short.BYTES + key.length() + payload.length();
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static List<String> strings(List<byte[]> payloads) {
+    return payloads.stream().map(p -> new String(p, StandardCharsets.UTF_8)).toList();
+  }
+
+}
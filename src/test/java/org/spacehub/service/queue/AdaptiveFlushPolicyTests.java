@@ -0,0 +1,52 @@
+package org.spacehub.service.queue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveFlushPolicyTests {
+
+  private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy("test.queue", 100, 1 << 20,
+    Duration.ofSeconds(1), 500, Duration.ofMillis(200), 8, meterRegistry);
+
+  @Test
+  void flushesAtThresholdsWhileHealthy() {
+    assertThat(policy.shouldFlush(0, 0, 10_000)).isFalse();
+    assertThat(policy.shouldFlush(99, 0, 0)).isFalse();
+    assertThat(policy.shouldFlush(100, 0, 0)).isTrue();
+    assertThat(policy.shouldFlush(1, 1 << 20, 0)).isTrue();
+    assertThat(policy.shouldFlush(1, 0, 1000)).isTrue();
+  }
+
+  @Test
+  void failuresStretchThresholds() {
+    for (int i = 0; i < 10; i++) policy.recordFlush(100, 1000, TARGET_NANOS, false);
+
+    assertThat(backoff()).isGreaterThan(1.0).isLessThanOrEqualTo(8.0);
+    assertThat(policy.shouldFlush(100, 0, 0)).isFalse();
+    assertThat(policy.shouldFlush(1, 0, 1000)).isFalse();
+    assertThat(policy.shouldFlush(800, 0, 0)).isTrue();
+  }
+
+  @Test
+  void backoffIsCappedAndDecaysOnFastFlushes() {
+    for (int i = 0; i < 50; i++) policy.recordFlush(100, 1000, TARGET_NANOS * 20, true);
+    assertThat(backoff()).isEqualTo(8.0);
+
+    for (int i = 0; i < 50; i++) policy.recordFlush(100, 1000, TARGET_NANOS / 10, true);
+    assertThat(backoff()).isEqualTo(1.0);
+    assertThat(policy.shouldFlush(100, 0, 0)).isTrue();
+  }
+
+  private double backoff() {
+    return meterRegistry.get("test.queue.flush.backoff").gauge().value();
+  }
+
+}